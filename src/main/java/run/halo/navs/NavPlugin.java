@@ -4,6 +4,8 @@ import org.pf4j.PluginWrapper;
 import org.springframework.stereotype.Component;
 import run.halo.app.extension.SchemeManager;
 import run.halo.app.plugin.BasePlugin;
+import run.halo.navs.publish.NavStaticFiles;
+import run.halo.navs.store.NavSnapshots;
 
 /**
  * @author zuoer
@@ -13,9 +15,16 @@ public class NavPlugin extends BasePlugin {
 
     private final SchemeManager schemeManager;
 
-    public NavPlugin(PluginWrapper wrapper, SchemeManager schemeManager) {
+    private final NavSnapshots navSnapshots;
+
+    private final NavStaticFiles navStaticFiles;
+
+    public NavPlugin(PluginWrapper wrapper, SchemeManager schemeManager,
+        NavSnapshots navSnapshots, NavStaticFiles navStaticFiles) {
         super(wrapper);
         this.schemeManager = schemeManager;
+        this.navSnapshots = navSnapshots;
+        this.navStaticFiles = navStaticFiles;
     }
 
     @Override
@@ -23,12 +32,18 @@ public class NavPlugin extends BasePlugin {
         // 插件启动时注册自定义模型
         schemeManager.register(Nav.class);
         schemeManager.register(NavGroup.class);
+        // 从快照预热导航数据，并在后台与数据库对账
+        navSnapshots.start();
+        // 开启静态模式时，导航变更后在后台重新生成静态数据
+        navStaticFiles.start();
         System.out.println("===>导航插件启动成功！");
     }
 
     @Override
     public void stop() {
-        // 插件停用时取消注册自定义模型
+        // 插件停用时写入快照，再取消注册自定义模型
+        navStaticFiles.stop();
+        navSnapshots.stop();
         schemeManager.unregister(schemeManager.get(Nav.class));
         schemeManager.unregister(schemeManager.get(NavGroup.class));
         System.out.println("===>导航插件停止！");
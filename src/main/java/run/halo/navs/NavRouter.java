@@ -1,45 +1,80 @@
 package run.halo.navs;
 
 import static java.util.Comparator.comparing;
+import static org.springdoc.core.fn.builders.apiresponse.Builder.responseBuilder;
+import static org.springdoc.core.fn.builders.parameter.Builder.parameterBuilder;
+import static org.springdoc.core.fn.builders.requestbody.Builder.requestBodyBuilder;
 import static run.halo.app.extension.router.QueryParamBuildUtil.buildParametersFromType;
 import static run.halo.app.extension.router.selector.SelectorUtil.labelAndFieldSelectorToPredicate;
 
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springdoc.webflux.core.fn.SpringdocRouteBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.comparator.Comparators;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RequestPredicates;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 import run.halo.app.core.extension.endpoint.SortResolver;
 import run.halo.app.extension.Extension;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.extension.router.IListRequest;
 import run.halo.navs.finders.NavFinder;
+import run.halo.navs.publish.NavJson;
+import run.halo.navs.publish.NavStaticFiles;
+import run.halo.navs.store.NavSortIndex;
+import run.halo.navs.store.NavStore;
+import run.halo.navs.store.NavUrlIndex;
 import run.halo.navs.vo.NavGroupTreeVo;
 import run.halo.navs.vo.NavGroupVo;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class NavRouter {
 
     private final NavFinder navFinder;
+    private final NavStaticFiles navStaticFiles;
+    private final NavUrlIndex navUrlIndex;
+    private final NavStore navStore;
+    private final NavSortIndex navSortIndex;
     private final ReactiveExtensionClient client;
     private final String tag = "api.plugin.halo.run/v1alpha1/Nav";
 
@@ -49,11 +84,40 @@ public class NavRouter {
         return RouterFunctions.route()
             .GET("/navs",request -> ServerResponse.ok().render("navs", Map.of("groups", navGroups())))
             .GET("/navgroups",request -> ServerResponse.ok().render("navgroups", Map.of("navgroups", navGroupGroups())))
+            .GET("/navs.json", request -> staticJson(navStaticFiles.groupsFile(),
+                () -> navGroups().map(NavJson::groups)
+                    .flatMap(groups -> ServerResponse.ok().bodyValue(groups))))
+            .GET("/navgroups.json", request -> staticJson(navStaticFiles.treeFile(),
+                () -> navGroupGroups().map(NavJson::tree)
+                    .flatMap(tree -> ServerResponse.ok().bodyValue(tree))))
             .build();
 
 
     }
 
+    /**
+     * Serve a pre-generated JSON file as is. The file is opened off the event loop before the
+     * response is committed, and the open channel keeps it readable even if it is replaced or
+     * removed meanwhile. Falls back to live data if there is no file or it is already gone,
+     * e.g. the static mode was just switched off.
+     */
+    private Mono<ServerResponse> staticJson(Optional<Path> file,
+        Supplier<Mono<ServerResponse>> fallback) {
+        return Mono.justOrEmpty(file)
+            .flatMap(path -> Mono.fromCallable(
+                    () -> AsynchronousFileChannel.open(path, StandardOpenOption.READ))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .flatMap(channel -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromDataBuffers(DataBufferUtils.readAsynchronousFileChannel(
+                    () -> channel, DefaultDataBufferFactory.sharedInstance, 8192))))
+            .onErrorResume(IOException.class, e -> {
+                log.debug("Static nav file is not available, serving live data", e);
+                return fallback.get();
+            })
+            .switchIfEmpty(Mono.defer(fallback));
+    }
+
     @Bean
     RouterFunction<ServerResponse> navRoute() {
         return SpringdocRouteBuilder.route()
@@ -75,6 +139,61 @@ public class NavRouter {
                     buildParametersFromType(builder, NavQuery.class);
                 }
             )
+            .POST("/navs", this::createNav,
+                builder -> builder.operationId("createNav")
+                    .description("Creates a nav, visible to the next list of navs")
+                    .tag(tag)
+                    .requestBody(requestBodyBuilder().required(true).implementation(Nav.class))
+                    .response(responseBuilder().implementation(Nav.class))
+            )
+            .PUT("/navs/{name}", this::updateNav,
+                builder -> builder.operationId("updateNav")
+                    .description("Updates a nav, visible to the next list of navs")
+                    .tag(tag)
+                    .parameter(parameterBuilder().in(ParameterIn.PATH).name("name")
+                        .required(true).implementation(String.class))
+                    .requestBody(requestBodyBuilder().required(true).implementation(Nav.class))
+                    .response(responseBuilder().implementation(Nav.class))
+            )
+            .DELETE("/navs/{name}", this::deleteNav,
+                builder -> builder.operationId("deleteNav")
+                    .description("Deletes a nav, marked as deleting in the next list of navs")
+                    .tag(tag)
+                    .parameter(parameterBuilder().in(ParameterIn.PATH).name("name")
+                        .required(true).implementation(String.class))
+                    .response(responseBuilder().implementation(Nav.class))
+            )
+            .GET("/navs/-/duplicates", this::listDuplicateNavs,
+                builder -> builder.operationId("listDuplicateNavs")
+                    .description("Lists names of navs pointing at the same normalized URL")
+                    .tag(tag)
+                    .parameter(parameterBuilder().in(ParameterIn.QUERY).name("url")
+                        .required(true).implementation(String.class))
+                    .parameter(parameterBuilder().in(ParameterIn.QUERY).name("name")
+                        .description("Name of the nav being edited, excluded from the result")
+                        .implementation(String.class))
+                    .response(responseBuilder().implementationArray(String.class))
+            )
+            .GET("/hosts/{host}/navs", this::listNavsByHost,
+                builder -> builder.operationId("listNavsByHost")
+                    .description("Lists navs linking to the host, or to any host of its "
+                        + "registrable domain when scope is domain")
+                    .tag(tag)
+                    .parameter(parameterBuilder().in(ParameterIn.PATH).name("host")
+                        .required(true).implementation(String.class))
+                    .parameter(parameterBuilder().in(ParameterIn.QUERY).name("scope")
+                        .description("host (default) or domain")
+                        .implementation(String.class))
+                    .response(responseBuilder().implementationArray(Nav.class))
+            )
+            .POST("/hosts/-/rewrite", this::rewriteHost,
+                builder -> builder.operationId("rewriteHost")
+                    .description("Replaces a URL prefix across all navs of its host, in batches")
+                    .tag(tag)
+                    .requestBody(requestBodyBuilder().required(true)
+                        .implementation(HostRewriteRequest.class))
+                    .response(responseBuilder().implementation(HostRewriteResult.class))
+            )
             .GET("/navgroups", this::listNavGroupByGroup,
                 builder -> {
                     builder.operationId("listNavGroups")
@@ -93,6 +212,19 @@ public class NavRouter {
     }
 
     private Mono<ListResult<Nav>> listNav(NavQuery query) {
+        if (navStore.isReady() && query.isIndexable()) {
+            // seek into a pre-sorted index instead of sorting all navs per page
+            String sortKey = query.toSortKey();
+            String groupName = StringUtils.defaultIfBlank(query.getGroupName(), null);
+            Mono<ListResult<Nav>> page = Mono.fromSupplier(() -> navSortIndex.page(sortKey,
+                query.toComparator(),
+                groupName,
+                query.getPage(),
+                query.getSize()));
+            // building an index sorts all navs, keep that off the event loop
+            return navSortIndex.isBuilt(sortKey, groupName) ? page
+                : page.subscribeOn(Schedulers.boundedElastic());
+        }
         return client.list(Nav.class, query.toPredicate(),
             query.toComparator(),
             query.getPage(),
@@ -100,6 +232,153 @@ public class NavRouter {
         );
     }
 
+    Mono<ServerResponse> createNav(ServerRequest request) {
+        return request.bodyToMono(Nav.class)
+            .switchIfEmpty(
+                Mono.error(() -> new ServerWebInputException("Request body is required")))
+            .flatMap(nav -> writeThrough(() -> client.create(nav)))
+            .flatMap(nav -> ServerResponse.ok().bodyValue(nav));
+    }
+
+    Mono<ServerResponse> updateNav(ServerRequest request) {
+        String name = request.pathVariable("name");
+        return request.bodyToMono(Nav.class)
+            .switchIfEmpty(
+                Mono.error(() -> new ServerWebInputException("Request body is required")))
+            .filter(nav -> nav.getMetadata() != null
+                && name.equals(nav.getMetadata().getName()))
+            .switchIfEmpty(Mono.error(() -> new ServerWebInputException(
+                "The name of the nav must match the path")))
+            .flatMap(nav -> writeThrough(() -> client.update(nav)))
+            .flatMap(nav -> ServerResponse.ok().bodyValue(nav));
+    }
+
+    Mono<ServerResponse> deleteNav(ServerRequest request) {
+        String name = request.pathVariable("name");
+        return writeThrough(() -> client.fetch(Nav.class, name)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Nav [" + name + "] not found")))
+                .flatMap(client::delete))
+            .flatMap(nav -> ServerResponse.ok().bodyValue(nav));
+    }
+
+    /**
+     * Put the result of a write into the nav store right away, so that {@link #listNav} reads
+     * it back without waiting for the reconciler. The reconciler then sees the same version
+     * and changes nothing.
+     */
+    private Mono<Nav> writeThrough(Supplier<Mono<Nav>> write) {
+        return Mono.defer(() -> {
+            long since = navStore.beginSync();
+            return write.get()
+                .doOnNext(nav -> navStore.putNav(nav, since))
+                .doFinally(signal -> navStore.endSync(since));
+        });
+    }
+
+    Mono<ServerResponse> listDuplicateNavs(ServerRequest request) {
+        String url = request.queryParam("url")
+            .filter(StringUtils::isNotBlank)
+            .orElseThrow(() -> new ServerWebInputException("The url must not be blank"));
+        String name = request.queryParam("name").orElse(null);
+        return ServerResponse.ok().bodyValue(navUrlIndex.findDuplicates(url, name));
+    }
+
+    Mono<ServerResponse> listNavsByHost(ServerRequest request) {
+        String host = request.pathVariable("host");
+        boolean domainScope = request.queryParam("scope")
+            .map("domain"::equalsIgnoreCase)
+            .orElse(false);
+        Set<String> names = domainScope ? navUrlIndex.findByDomain(host)
+            : navUrlIndex.findByHost(host);
+        return Flux.fromIterable(names)
+            .flatMap(name -> client.fetch(Nav.class, name))
+            .sort(NavQuery.compareName(true))
+            .collectList()
+            .flatMap(navs -> ServerResponse.ok().bodyValue(navs));
+    }
+
+    Mono<ServerResponse> rewriteHost(ServerRequest request) {
+        return request.bodyToMono(HostRewriteRequest.class)
+            .switchIfEmpty(
+                Mono.error(() -> new ServerWebInputException("Request body is required")))
+            .flatMap(this::rewriteHost)
+            .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    private Mono<HostRewriteResult> rewriteHost(HostRewriteRequest rewrite) {
+        if (StringUtils.isAnyBlank(rewrite.from(), rewrite.to())) {
+            return Mono.error(new ServerWebInputException("Both from and to are required"));
+        }
+        int batchSize = rewrite.batchSize() == null || rewrite.batchSize() <= 0
+            ? HostRewriteRequest.DEFAULT_BATCH_SIZE
+            : Math.min(rewrite.batchSize(), HostRewriteRequest.MAX_BATCH_SIZE);
+        return Flux.fromIterable(navUrlIndex.findByHost(rewrite.from()))
+            .buffer(batchSize)
+            .concatMap(batch -> Flux.fromIterable(batch)
+                .flatMap(name -> rewriteNav(name, rewrite)
+                    .map(updated -> new NavRewrite(name, true, null))
+                    .defaultIfEmpty(new NavRewrite(name, false, null))
+                    .onErrorResume(e -> {
+                        log.warn("Failed to rewrite the URL of nav [{}]", name, e);
+                        return Mono.just(new NavRewrite(name, false, e.getMessage()));
+                    })))
+            .collectList()
+            .map(HostRewriteResult::from);
+    }
+
+    /**
+     * Rewrite the URL of one nav, refetching and retrying if it was edited concurrently.
+     * Empty if the nav is gone or no longer starts with the prefix, e.g. on a re-run.
+     */
+    private Mono<Nav> rewriteNav(String name, HostRewriteRequest rewrite) {
+        return Mono.defer(() -> client.fetch(Nav.class, name))
+            .filter(nav -> StringUtils.startsWithIgnoreCase(nav.getSpec().getUrl(),
+                rewrite.from()))
+            .flatMap(nav -> {
+                String url = nav.getSpec().getUrl();
+                nav.getSpec().setUrl(rewrite.to() + url.substring(rewrite.from().length()));
+                return writeThrough(() -> client.update(nav));
+            })
+            .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
+    record NavRewrite(String name, boolean updated, String error) {
+    }
+
+    /**
+     * Replace the URL prefix {@code from} with {@code to} on every nav whose URL starts with
+     * {@code from}, ignoring case. Navs are updated {@code batchSize} at a time.
+     */
+    record HostRewriteRequest(
+        @Schema(required = true, example = "https://old.example.com") String from,
+        @Schema(required = true, example = "https://new.example.com") String to,
+        @Schema(description = "Navs updated per batch, defaults to 50, at most 100")
+        Integer batchSize) {
+        static final int DEFAULT_BATCH_SIZE = 50;
+        static final int MAX_BATCH_SIZE = 100;
+    }
+
+    /**
+     * Outcome of a rewrite. Failed navs keep their old URL, so the same request can be sent
+     * again to retry them.
+     */
+    record HostRewriteResult(
+        long updated,
+        long failed,
+        @Schema(description = "Names of the navs that failed to update") List<String> failedNames) {
+
+        static HostRewriteResult from(List<NavRewrite> rewrites) {
+            List<String> failedNames = rewrites.stream()
+                .filter(rewrite -> rewrite.error() != null)
+                .map(NavRewrite::name)
+                .toList();
+            long updated = rewrites.stream().filter(NavRewrite::updated).count();
+            return new HostRewriteResult(updated, failedNames.size(), failedNames);
+        }
+    }
+
     static class NavQuery extends IListRequest.QueryListRequest {
         private final ServerWebExchange exchange;
 
@@ -154,33 +433,25 @@ public class NavRouter {
             return groupPredicate.and(keywordPredicate).and(labelAndFieldSelectorToPredicate);
         }
 
+        /**
+         * Whether the query only filters by group, so that it can be served by
+         * {@link NavSortIndex}.
+         */
+        public boolean isIndexable() {
+            return StringUtils.isBlank(getKeyword())
+                && CollectionUtils.isEmpty(getLabelSelector())
+                && CollectionUtils.isEmpty(getFieldSelector());
+        }
+
+        /**
+         * A canonical form of the sort orders {@link #toComparator()} takes into account.
+         */
+        public String toSortKey() {
+            return NavSortIndex.sortKey(getSort());
+        }
+
         public Comparator<Nav> toComparator() {
-            var sort = getSort();
-            var ctOrder = sort.getOrderFor("creationTimestamp");
-            var priorityOrder = sort.getOrderFor("priority");
-            List<Comparator<Nav>> comparators = new ArrayList<>();
-            if (ctOrder != null) {
-                Comparator<Nav> comparator =
-                    comparing(nav -> nav.getMetadata().getCreationTimestamp());
-                if (ctOrder.isDescending()) {
-                    comparator = comparator.reversed();
-                }
-                comparators.add(comparator);
-            }
-            if (priorityOrder != null) {
-                Comparator<Nav> comparator =
-                    comparing(nav -> nav.getSpec().getPriority(),
-                        Comparators.nullsLow());
-                if (priorityOrder.isDescending()) {
-                    comparator = comparator.reversed();
-                }
-                comparators.add(comparator);
-            }
-            comparators.add(compareCreationTimestamp(false));
-            comparators.add(compareName(true));
-            return comparators.stream()
-                .reduce(Comparator::thenComparing)
-                .orElse(null);
+            return NavSortIndex.comparator(getSort());
         }
 
         public static <E extends Extension> Comparator<E> compareCreationTimestamp(boolean asc) {
@@ -196,8 +467,9 @@ public class NavRouter {
     }
 
     private Mono<List<NavGroupVo>> navGroups() {
-        return navFinder.groupBy()
-            .collectList();
+        return navStaticFiles.groups()
+            .map(Mono::just)
+            .orElseGet(() -> navFinder.groupBy().collectList());
     }
 
 
@@ -301,7 +573,8 @@ public class NavRouter {
     }
 
     private Mono<List<NavGroupTreeVo>> navGroupGroups() {
-        return navFinder.listGroupsAsTree()
-            .collectList();
+        return navStaticFiles.tree()
+            .map(Mono::just)
+            .orElseGet(() -> navFinder.listGroupsAsTree().collectList());
     }
 }
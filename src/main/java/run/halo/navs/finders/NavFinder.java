@@ -17,8 +17,26 @@ public interface NavFinder {
 
     Flux<NavVo> listBy(String group);
 
+    /**
+     * Lists the first {@code limit} navs of the group in display order, all of them if the
+     * limit is zero or less.
+     */
+    Flux<NavVo> listBy(String group, int limit);
+
+    /**
+     * Counts the navs of the group, to go along with {@link #listBy(String, int)}.
+     */
+    Mono<Integer> countBy(String group);
+
     Flux<NavGroupVo> groupBy();
 
+    /**
+     * Like {@link #groupBy()}, but each group only carries its first {@code limitPerGroup}
+     * navs, with {@link NavGroupVo#getTotal()} holding the number of all navs of the group.
+     * A limit of zero or less keeps every nav.
+     */
+    Flux<NavGroupVo> groupBy(int limitPerGroup);
+
     Flux<NavGroupVo> listAllGroups();
 
     Flux<NavGroupTreeVo> listGroupsAsTree();
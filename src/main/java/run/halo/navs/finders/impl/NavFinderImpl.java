@@ -3,13 +3,20 @@ package run.halo.navs.finders.impl;
 import static run.halo.app.extension.router.selector.SelectorUtil.labelAndFieldSelectorToPredicate;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.lang.Nullable;
 import org.springframework.util.comparator.Comparators;
@@ -22,35 +29,78 @@ import run.halo.app.theme.finders.Finder;
 import run.halo.navs.Nav;
 import run.halo.navs.NavGroup;
 import run.halo.navs.finders.NavFinder;
+import run.halo.navs.store.NavStore;
 import run.halo.navs.vo.NavGroupTreeVo;
 import run.halo.navs.vo.NavGroupVo;
 import run.halo.navs.vo.NavVo;
+import run.halo.navs.vo.TreeTraversal;
 
 /**
  * A default implementation for {@nav NavFinder}.
  *
  * @author zuoer
  */
+@Slf4j
 @Finder("navFinder")
 public class NavFinderImpl implements NavFinder {
     private final ReactiveExtensionClient client;
 
-    public NavFinderImpl(ReactiveExtensionClient client) {
+    private final NavStore navStore;
+
+    public NavFinderImpl(ReactiveExtensionClient client, NavStore navStore) {
         this.client = client;
+        this.navStore = navStore;
     }
 
     // ------------------ nav ----------------------
     @Override
     public Flux<NavVo> listBy(String groupName) {
-        return listAll(nav -> StringUtils.equals(nav.getSpec().getGroupName(), groupName)
-            && nav.getMetadata().getDeletionTimestamp() != null)
+        return listAll(inGroup(groupName))
             .map(NavVo::from);
     }
 
+    @Override
+    public Flux<NavVo> listBy(String groupName, int limit) {
+        return listAllUnsorted()
+            .filter(inGroup(groupName))
+            .collect(() -> new TopK<Nav>(limit, defaultNavComparator()), TopK::offer)
+            .flatMapIterable(TopK::sorted)
+            .map(NavVo::from);
+    }
+
+    @Override
+    public Mono<Integer> countBy(String groupName) {
+        return listAllUnsorted()
+            .filter(inGroup(groupName))
+            .count()
+            .map(Long::intValue);
+    }
+
+    static Predicate<Nav> inGroup(String groupName) {
+        return nav -> StringUtils.equals(nav.getSpec().getGroupName(), groupName)
+            && nav.getMetadata().getDeletionTimestamp() == null;
+    }
+
     Flux<Nav> listAll(@Nullable Predicate<Nav> predicate) {
+        if (navStore.isReady()) {
+            // served from the warm in-memory copy, see NavSnapshots
+            return Flux.fromIterable(navStore.navs())
+                .filter(predicate == null ? nav -> true : predicate)
+                .sort(defaultNavComparator());
+        }
         return client.list(Nav.class, predicate, defaultNavComparator());
     }
 
+    /**
+     * All navs in no particular order, for callers that only need part of them sorted.
+     */
+    Flux<Nav> listAllUnsorted() {
+        if (navStore.isReady()) {
+            return Flux.fromIterable(navStore.navs());
+        }
+        return client.list(Nav.class, null, defaultNavComparator());
+    }
+
     static Comparator<Nav> defaultNavComparator() {
         Function<Nav, Integer> priority = nav -> nav.getSpec().getPriority();
         Function<Nav, Instant> createTime = nav -> nav.getMetadata().getCreationTimestamp();
@@ -63,29 +113,38 @@ public class NavFinderImpl implements NavFinder {
     // ------------------ navGroup ----------------------
     @Override
     public Flux<NavGroupVo> groupBy() {
-        Flux<Nav> navFlux = listAll(null);
-        return listAllGroups()
-            .concatMap(group -> navFlux
-                .filter(nav -> StringUtils.equals(nav.getSpec().getGroupName(),
-                    group.getMetadata().getName())
-                )
-                .map(NavVo::from)
-                .collectList()
-                .map(group::withNavs)
-                .defaultIfEmpty(group)
-            )
-            .mergeWith(Mono.defer(() -> ungrouped()
-                .map(NavGroupVo::from)
-                .flatMap(navGroup -> navFlux.filter(
-                        nav -> StringUtils.isBlank(nav.getSpec().getGroupName()))
-                    .map(NavVo::from)
-                    .collectList()
-                    .map(navGroup::withNavs)
-                    .defaultIfEmpty(navGroup)
-                ))
+        return groupBy(0);
+    }
+
+    @Override
+    public Flux<NavGroupVo> groupBy(int limitPerGroup) {
+        // one pass over all navs, keeping only the first navs of each group
+        return listAllUnsorted()
+            .filter(nav -> nav.getMetadata().getDeletionTimestamp() == null)
+            .collect(HashMap<String, TopK<Nav>>::new,
+                (topByGroup, nav) -> topByGroup.computeIfAbsent(groupKey(nav),
+                    key -> new TopK<>(limitPerGroup, defaultNavComparator())).offer(nav))
+            .flatMapMany(topByGroup -> listAllGroups()
+                .map(group -> withTop(group, topByGroup.get(group.getMetadata().getName())))
+                .concatWith(ungrouped()
+                    .map(NavGroupVo::from)
+                    .map(group -> withTop(group, topByGroup.get(""))))
             );
     }
 
+    static String groupKey(Nav nav) {
+        String groupName = nav.getSpec().getGroupName();
+        return StringUtils.isBlank(groupName) ? "" : groupName;
+    }
+
+    static NavGroupVo withTop(NavGroupVo group, @Nullable TopK<Nav> top) {
+        if (top == null) {
+            return group;
+        }
+        return group.withNavs(top.sorted().stream().map(NavVo::from).toList())
+            .withTotal(top.total());
+    }
+
     Mono<NavGroup> ungrouped() {
         NavGroup navGroup = new NavGroup();
         navGroup.setMetadata(new Metadata());
@@ -99,8 +158,10 @@ public class NavFinderImpl implements NavFinder {
 
     @Override
     public Flux<NavGroupVo> listAllGroups() {
-        return client.list(NavGroup.class, null, defaultGroupComparator())
-            .map(NavGroupVo::from);
+        Flux<NavGroup> groups = navStore.isReady()
+            ? Flux.fromIterable(navStore.groups()).sort(defaultGroupComparator())
+            : client.list(NavGroup.class, null, defaultGroupComparator());
+        return groups.map(NavGroupVo::from);
     }
 
     @Override
@@ -128,56 +189,102 @@ public class NavFinderImpl implements NavFinder {
     Flux<NavGroupTreeVo> toNavGroupTreeVoFlux(String name) {
         return listAllGroups()
             .collectList()
-            .flatMapIterable(categoryVos -> {
-                Map<String, NavGroupTreeVo> nameIdentityMap = categoryVos.stream()
-                    .map(NavGroupTreeVo::from)
-                    .collect(Collectors.toMap(categoryVo -> categoryVo.getMetadata().getName(),
-                        Function.identity()));
-
-                nameIdentityMap.forEach((nameKey, value) -> {
-                    // todo:linkedHashSet
-                    List<String> children = value.getSpec().getChildren();
-                    if (children == null) {
-                        return;
-                    }
-                    for (String child : children) {
-                        NavGroupTreeVo childNode = nameIdentityMap.get(child);
-                        if (childNode != null) {
-                            childNode.setParentName(nameKey);
-                        }
-                    }
-                });
-                return listToTree(nameIdentityMap.values(), name);
-            });
+            .flatMapIterable(groups -> listToTree(groups.stream()
+                .map(NavGroupTreeVo::from)
+                .toList(), name));
     }
 
     static List<NavGroupTreeVo> listToTree(Collection<NavGroupTreeVo> list, String name) {
-        Map<String, List<NavGroupTreeVo>> parentNameIdentityMap = list.stream()
-            .filter(navGroupTreeVo -> navGroupTreeVo.getParentName() != null)
-            .collect(Collectors.groupingBy(NavGroupTreeVo::getParentName));
-
-        list.forEach(node -> {
-            // sort children
-            List<NavGroupTreeVo> children =
-                parentNameIdentityMap.getOrDefault(node.getMetadata().getName(), List.of())
-                    .stream()
-                    .sorted(defaultTreeNodeComparator())
-                    .toList();
-            node.setChildren(children);
-        });
+        List<NavGroupTreeVo> roots = linkTree(list);
+        if (StringUtils.isEmpty(name)) {
+            return roots;
+        }
         return list.stream()
-            .filter(v -> StringUtils.isEmpty(name) ? v.getParentName() == null
-                : StringUtils.equals(v.getMetadata().getName(), name))
-            .sorted(defaultTreeNodeComparator())
+            .filter(node -> StringUtils.equals(node.getMetadata().getName(), name))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Link every group to the groups listed in its {@code spec.children} and return the roots
+     * in display order. A group listed under several parents stays below the first of them in
+     * display order, and a link that closes a cycle is cut so that its child becomes a root.
+     * Both are logged.
+     */
+    static List<NavGroupTreeVo> linkTree(Collection<NavGroupTreeVo> list) {
+        Comparator<NavGroupTreeVo> comparator = defaultTreeNodeComparator();
+        List<NavGroupTreeVo> sorted = list.stream().sorted(comparator).toList();
+        Map<String, NavGroupTreeVo> byName = new HashMap<>();
+        sorted.forEach(node -> {
+            node.setParentName(null);
+            byName.put(node.getMetadata().getName(), node);
+        });
+        for (NavGroupTreeVo parent : sorted) {
+            String parentName = parent.getMetadata().getName();
+            List<String> childNames = parent.getSpec().getChildren();
+            List<NavGroupTreeVo> children = new ArrayList<>();
+            for (String childName : childNames == null ? Set.<String>of()
+                : new LinkedHashSet<>(childNames)) {
+                NavGroupTreeVo child = byName.get(childName);
+                if (child == null) {
+                    continue;
+                }
+                if (child == parent) {
+                    log.warn("Nav group cycle detected: {} -> {}", parentName, parentName);
+                    continue;
+                }
+                if (child.getParentName() != null) {
+                    log.warn("Nav group [{}] is listed under both [{}] and [{}], keeping [{}]",
+                        childName, child.getParentName(), parentName, child.getParentName());
+                    continue;
+                }
+                child.setParentName(parentName);
+                children.add(child);
+            }
+            children.sort(comparator);
+            parent.setChildren(children);
+        }
+
+        TreeTraversal<NavGroupTreeVo> traversal = TreeTraversal.<NavGroupTreeVo>create()
+            .onCycle(path -> {
+                NavGroupTreeVo parent = path.get(path.size() - 2);
+                NavGroupTreeVo child = path.get(path.size() - 1);
+                parent.setChildren(parent.getChildren().stream()
+                    .filter(node -> node != child)
+                    .toList());
+                child.setParentName(null);
+                log.warn("Nav group cycle detected: {}", path.stream()
+                    .map(node -> node.getMetadata().getName())
+                    .collect(Collectors.joining(" -> ")));
+            });
+        Set<NavGroupTreeVo> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<NavGroupTreeVo> roots = sorted.stream()
+            .filter(node -> node.getParentName() == null)
+            .collect(Collectors.toCollection(ArrayList::new));
+        traversal.walk(roots, (node, depth, last) -> linked.add(node));
+        // the groups left hang below a cycle of parents, walking from a group of that cycle
+        // cuts the link back to it
+        for (NavGroupTreeVo node : sorted) {
+            if (linked.contains(node)) {
+                continue;
+            }
+            Set<NavGroupTreeVo> ancestors = Collections.newSetFromMap(new IdentityHashMap<>());
+            NavGroupTreeVo start = node;
+            while (ancestors.add(start)) {
+                start = byName.get(start.getParentName());
+            }
+            traversal.walk(start, (group, depth, last) -> linked.add(group));
+            roots.add(start);
+        }
+        roots.sort(comparator);
+        return roots;
+    }
+
     static Comparator<NavGroupTreeVo> defaultTreeNodeComparator() {
         Function<NavGroupTreeVo, Integer> priority = navGroup -> navGroup.getSpec().getPriority();
         Function<NavGroupTreeVo, Instant> createTime = navGroup -> navGroup.getMetadata().getCreationTimestamp();
         Function<NavGroupTreeVo, String> name = navGroup -> navGroup.getMetadata().getName();
 
-        return Comparator.comparing(priority)
+        return Comparator.comparing(priority, Comparators.nullsLow())
             .thenComparing(createTime, Comparators.nullsLow())
             .thenComparing(name);
     }
@@ -0,0 +1,56 @@
+package run.halo.navs.finders.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first {@code limit} elements offered in comparator order, and counts all of them.
+ *
+ * <p>Backed by a bounded heap whose head is the worst element kept, so offering n elements
+ * costs O(n log limit) instead of sorting all of them. A limit of zero or less keeps every
+ * element.
+ *
+ * @author zuoer
+ */
+final class TopK<T> {
+
+    private final int limit;
+
+    private final Comparator<? super T> comparator;
+
+    private final PriorityQueue<T> heap;
+
+    private int total;
+
+    TopK(int limit, Comparator<? super T> comparator) {
+        this.limit = limit;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 64)),
+            comparator.reversed());
+    }
+
+    void offer(T element) {
+        total++;
+        if (limit <= 0 || heap.size() < limit) {
+            heap.add(element);
+        } else if (comparator.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * The kept elements in comparator order.
+     */
+    List<T> sorted() {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    int total() {
+        return total;
+    }
+}
@@ -0,0 +1,100 @@
+package run.halo.navs.publish;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+import run.halo.navs.vo.NavGroupTreeVo;
+import run.halo.navs.vo.NavGroupVo;
+import run.halo.navs.vo.NavVo;
+import run.halo.navs.vo.TreeTraversal;
+
+/**
+ * The public JSON of the {@code navs} and {@code navgroups} pages. It carries what the pages
+ * show, without the extension metadata such as annotations, finalizers or versions.
+ *
+ * @author zuoer
+ */
+public final class NavJson {
+
+    private NavJson() {
+    }
+
+    public static List<NavGroupView> groups(List<NavGroupVo> groups) {
+        return groups.stream().map(NavGroupView::from).toList();
+    }
+
+    /**
+     * Trim the trees below the given roots, children before their parents so that deep trees
+     * are not converted recursively.
+     */
+    public static List<NavGroupNode> tree(List<NavGroupTreeVo> roots) {
+        Map<NavGroupTreeVo, NavGroupNode> nodes = new IdentityHashMap<>();
+        TreeTraversal.<NavGroupTreeVo>create()
+            .order(TreeTraversal.Order.POST_ORDER)
+            .distinct()
+            .walk(roots, (node, depth, last) -> {
+                List<NavGroupNode> children = node.getChildren() == null ? List.of()
+                    : node.getChildren().stream()
+                        .map(nodes::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+                nodes.put(node, NavGroupNode.from(node, children));
+            });
+        return roots.stream().map(nodes::get).filter(Objects::nonNull).toList();
+    }
+
+    public record NavView(
+        String name,
+        String displayName,
+        String url,
+        String logo,
+        String description,
+        Integer priority) {
+
+        static NavView from(NavVo nav) {
+            Nav.NavSpec spec = nav.getSpec();
+            String name = nav.getMetadata().getName();
+            if (spec == null) {
+                return new NavView(name, null, null, null, null, null);
+            }
+            return new NavView(name, spec.getDisplayName(), spec.getUrl(), spec.getLogo(),
+                spec.getDescription(), spec.getPriority());
+        }
+    }
+
+    public record NavGroupView(
+        String name,
+        String displayName,
+        Integer priority,
+        Integer total,
+        List<NavView> navs) {
+
+        static NavGroupView from(NavGroupVo group) {
+            NavGroup.NavGroupSpec spec = group.getSpec();
+            List<NavView> navs = group.getNavs() == null ? List.of()
+                : group.getNavs().stream().map(NavView::from).toList();
+            return new NavGroupView(group.getMetadata().getName(),
+                spec == null ? null : spec.getDisplayName(),
+                spec == null ? null : spec.getPriority(),
+                group.getTotal(), navs);
+        }
+    }
+
+    public record NavGroupNode(
+        String name,
+        String displayName,
+        Integer priority,
+        List<NavGroupNode> children) {
+
+        static NavGroupNode from(NavGroupTreeVo group, List<NavGroupNode> children) {
+            NavGroup.NavGroupSpec spec = group.getSpec();
+            return new NavGroupNode(group.getMetadata().getName(),
+                spec == null ? null : spec.getDisplayName(),
+                spec == null ? null : spec.getPriority(),
+                children);
+        }
+    }
+}
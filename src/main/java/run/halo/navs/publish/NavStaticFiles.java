@@ -0,0 +1,193 @@
+package run.halo.navs.publish;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import run.halo.app.infra.utils.JsonUtils;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+import run.halo.navs.finders.NavFinder;
+import run.halo.navs.store.NavDataDirectory;
+import run.halo.navs.store.NavStore;
+import run.halo.navs.vo.NavGroupTreeVo;
+import run.halo.navs.vo.NavGroupVo;
+
+/**
+ * Pre-builds the data behind the {@code navs} and {@code navgroups} pages when the static
+ * mode is switched on in the plugin settings.
+ *
+ * <p>Every {@link Nav} or {@link NavGroup} change schedules a regeneration, debounced so that
+ * bulk edits only rebuild once. A regeneration writes the {@link NavJson} of
+ * {@link NavFinder#groupBy()} and {@link NavFinder#listGroupsAsTree()} atomically to disk and
+ * keeps the same lists as the ready-made model for the page routes.
+ *
+ * @author zuoer
+ */
+@Slf4j
+@Component
+public class NavStaticFiles implements NavStore.Listener {
+
+    static final Duration DEBOUNCE = Duration.ofSeconds(2);
+
+    static final String SETTING_GROUP = "static";
+
+    private final NavFinder navFinder;
+
+    private final ReactiveSettingFetcher settingFetcher;
+
+    private final Path groupsFile;
+
+    private final Path treeFile;
+
+    private final Sinks.Many<Boolean> changes = Sinks.many().unicast().onBackpressureBuffer();
+
+    private volatile List<NavGroupVo> groups;
+
+    private volatile List<NavGroupTreeVo> tree;
+
+    private Disposable regeneration;
+
+    public NavStaticFiles(NavFinder navFinder, ReactiveSettingFetcher settingFetcher,
+        NavStore navStore, NavDataDirectory dataDirectory) {
+        this.navFinder = navFinder;
+        this.settingFetcher = settingFetcher;
+        this.groupsFile = dataDirectory.resolve("static/navs.json");
+        this.treeFile = dataDirectory.resolve("static/navgroups.json");
+        navStore.addListener(this);
+    }
+
+    public void start() {
+        regeneration = changes.asFlux()
+            .sampleTimeout(change -> Mono.delay(DEBOUNCE))
+            .onBackpressureLatest()
+            .concatMap(change -> regenerate()
+                .onErrorResume(e -> {
+                    log.warn("Failed to regenerate static nav files", e);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+        requestRegeneration();
+    }
+
+    public void stop() {
+        if (regeneration != null) {
+            regeneration.dispose();
+        }
+    }
+
+    /**
+     * Schedule a regeneration, e.g. after the static mode has been toggled.
+     */
+    public synchronized void requestRegeneration() {
+        changes.tryEmitNext(Boolean.TRUE);
+    }
+
+    @Override
+    public void onNavChanged(@Nullable Nav old, @Nullable Nav current) {
+        requestRegeneration();
+    }
+
+    @Override
+    public void onGroupChanged(@Nullable NavGroup old, @Nullable NavGroup current) {
+        requestRegeneration();
+    }
+
+    /**
+     * The pre-built model for the {@code navs} page, empty if the static mode is off.
+     */
+    public Optional<List<NavGroupVo>> groups() {
+        return Optional.ofNullable(groups);
+    }
+
+    /**
+     * The pre-built model for the {@code navgroups} page, empty if the static mode is off.
+     */
+    public Optional<List<NavGroupTreeVo>> tree() {
+        return Optional.ofNullable(tree);
+    }
+
+    /**
+     * The {@link NavJson} file of {@link NavFinder#groupBy()}, empty if it has not been
+     * generated.
+     */
+    public Optional<Path> groupsFile() {
+        return groups == null ? Optional.empty() : Optional.of(groupsFile);
+    }
+
+    /**
+     * The {@link NavJson} file of {@link NavFinder#listGroupsAsTree()}, empty if it has not
+     * been generated.
+     */
+    public Optional<Path> treeFile() {
+        return tree == null ? Optional.empty() : Optional.of(treeFile);
+    }
+
+    Mono<Void> regenerate() {
+        return settingFetcher.fetch(SETTING_GROUP, StaticSetting.class)
+            .map(StaticSetting::enabled)
+            .defaultIfEmpty(false)
+            .flatMap(enabled -> enabled ? write() : clear());
+    }
+
+    Mono<Void> write() {
+        return Mono.zip(navFinder.groupBy().collectList(),
+                navFinder.listGroupsAsTree().collectList())
+            .publishOn(Schedulers.boundedElastic())
+            .doOnNext(tuple -> {
+                writeAtomically(groupsFile, NavJson.groups(tuple.getT1()));
+                writeAtomically(treeFile, NavJson.tree(tuple.getT2()));
+                this.groups = tuple.getT1();
+                this.tree = tuple.getT2();
+                log.debug("Regenerated static nav files in {}", groupsFile.getParent());
+            })
+            .then();
+    }
+
+    Mono<Void> clear() {
+        return Mono.<Void>fromRunnable(() -> {
+                // stop handing out the files first, requests already holding a path fall back
+                // to live data if the file is gone
+                this.groups = null;
+                this.tree = null;
+                try {
+                    Files.deleteIfExists(groupsFile);
+                    Files.deleteIfExists(treeFile);
+                } catch (IOException e) {
+                    log.warn("Failed to remove static nav files", e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    static void writeAtomically(Path file, Object value) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(),
+                ".tmp");
+            try {
+                Files.write(tempFile, JsonUtils.mapper().writeValueAsBytes(value));
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write " + file, e);
+        }
+    }
+
+    public record StaticSetting(boolean enabled) {
+    }
+}
@@ -0,0 +1,38 @@
+package run.halo.navs.reconciler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.ExtensionClient;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+import run.halo.navs.NavGroup;
+import run.halo.navs.store.NavStore;
+
+/**
+ * Keeps {@link NavStore} in sync with {@link NavGroup} changes.
+ *
+ * @author zuoer
+ */
+@Component
+@RequiredArgsConstructor
+public class NavGroupReconciler implements Reconciler<Reconciler.Request> {
+
+    private final ExtensionClient client;
+
+    private final NavStore navStore;
+
+    @Override
+    public Result reconcile(Request request) {
+        client.fetch(NavGroup.class, request.name())
+            .ifPresentOrElse(navStore::putGroup, () -> navStore.removeGroup(request.name()));
+        return Result.doNotRetry();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new NavGroup())
+            .build();
+    }
+}
@@ -0,0 +1,39 @@
+package run.halo.navs.reconciler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.ConfigMap;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+import run.halo.navs.publish.NavStaticFiles;
+
+/**
+ * Regenerates the static nav files when the plugin settings change, so that toggling the
+ * static mode takes effect without waiting for the next nav edit.
+ *
+ * @author zuoer
+ */
+@Component
+@RequiredArgsConstructor
+public class NavSettingReconciler implements Reconciler<Reconciler.Request> {
+
+    static final String CONFIG_MAP_NAME = "plugin-navs-configmap";
+
+    private final NavStaticFiles navStaticFiles;
+
+    @Override
+    public Result reconcile(Request request) {
+        if (CONFIG_MAP_NAME.equals(request.name())) {
+            navStaticFiles.requestRegeneration();
+        }
+        return Result.doNotRetry();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new ConfigMap())
+            .build();
+    }
+}
@@ -0,0 +1,31 @@
+package run.halo.navs.store;
+
+import java.nio.file.Path;
+import org.pf4j.PluginWrapper;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * The directory this plugin keeps its generated files in, below the Halo work directory.
+ *
+ * @author zuoer
+ */
+@Component
+public class NavDataDirectory {
+
+    private final Path root;
+
+    public NavDataDirectory(PluginWrapper pluginWrapper, Environment environment) {
+        String workDir = environment.getProperty("halo.work-dir",
+            Path.of(System.getProperty("user.home"), ".halo2").toString());
+        this.root = Path.of(workDir, "plugins-data", pluginWrapper.getPluginId());
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path resolve(String other) {
+        return root.resolve(other);
+    }
+}
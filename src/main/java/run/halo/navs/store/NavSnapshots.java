@@ -0,0 +1,421 @@
+package run.halo.navs.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import run.halo.app.extension.Extension;
+import run.halo.app.extension.GroupVersionKind;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.MetadataOperator;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+
+/**
+ * Persists {@link NavStore} to a compact binary snapshot in the plugin work directory, so
+ * that a restart or plugin reload can serve navs before the extension store has been listed.
+ *
+ * <p>Layout: magic, format version, then the nav section and the group section, each being a
+ * count followed by length-prefixed UTF-8 fields. The file is written to a temporary file and
+ * moved into place atomically, and memory-mapped when read back.
+ *
+ * @author zuoer
+ */
+@Slf4j
+@Component
+public class NavSnapshots {
+
+    static final int MAGIC = 0x4E415653;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final Duration SAVE_INTERVAL = Duration.ofMinutes(5);
+
+    /**
+     * Lower bound of an encoded nav or group: the name, generate name, label, annotation and
+     * finalizer fields take at least four bytes each.
+     */
+    static final int MIN_EXTENSION_BYTES = 5 * Integer.BYTES;
+
+    private final NavStore navStore;
+
+    private final ReactiveExtensionClient client;
+
+    private final Path snapshotFile;
+
+    private volatile long savedModCount = -1;
+
+    private Disposable periodicSave;
+
+    private Disposable backgroundSync;
+
+    public NavSnapshots(NavStore navStore, ReactiveExtensionClient client,
+        NavDataDirectory dataDirectory) {
+        this.navStore = navStore;
+        this.client = client;
+        this.snapshotFile = dataDirectory.resolve("navs.snapshot");
+    }
+
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Warm the store from the snapshot file, then reconcile it against the extension store in
+     * the background and start saving snapshots periodically.
+     */
+    public void start() {
+        try {
+            if (restore()) {
+                navStore.markReady();
+            }
+        } finally {
+            navStore.endSync(NavStore.STARTUP_SYNC);
+        }
+        backgroundSync = Mono.defer(() -> {
+                // writes of the reconcilers after this point win over the listing
+                long since = navStore.beginSync();
+                return Mono.zip(
+                        client.list(Nav.class, null, byName()).collectList(),
+                        client.list(NavGroup.class, null, byName()).collectList())
+                    .doOnNext(tuple -> navStore.reconcile(tuple.getT1(), tuple.getT2(), since))
+                    .doFinally(signal -> navStore.endSync(since));
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(tuple -> navStore.markReady(),
+                e -> log.warn("Failed to reconcile navs with the extension store", e));
+        periodicSave = Flux.interval(SAVE_INTERVAL, SAVE_INTERVAL, Schedulers.boundedElastic())
+            .subscribe(tick -> saveIfChanged());
+    }
+
+    /**
+     * Stop background work and write a final snapshot.
+     */
+    public void stop() {
+        if (periodicSave != null) {
+            periodicSave.dispose();
+        }
+        if (backgroundSync != null) {
+            backgroundSync.dispose();
+        }
+        if (navStore.isReady()) {
+            saveIfChanged();
+        }
+    }
+
+    static <E extends Extension> Comparator<E> byName() {
+        return Comparator.comparing(e -> e.getMetadata().getName());
+    }
+
+    void saveIfChanged() {
+        long modCount = navStore.modCount();
+        if (modCount == savedModCount) {
+            return;
+        }
+        try {
+            save(navStore.navs(), navStore.groups());
+            savedModCount = modCount;
+        } catch (IOException e) {
+            log.warn("Failed to write nav snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    boolean restore() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.info("Ignoring nav snapshot {} with unknown format", snapshotFile);
+                return false;
+            }
+            List<Nav> navs = readNavs(buffer);
+            List<NavGroup> groups = readGroups(buffer);
+            // anything the reconcilers stored already is newer than the snapshot
+            navStore.reconcile(navs, groups, NavStore.STARTUP_SYNC);
+            savedModCount = navStore.modCount();
+            log.info("Restored {} navs and {} groups from {}", navs.size(), groups.size(),
+                snapshotFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read nav snapshot {}, falling back to a cold start",
+                snapshotFile, e);
+            return false;
+        }
+    }
+
+    void save(Collection<Nav> navs, Collection<NavGroup> groups) throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        Path tempFile = Files.createTempFile(snapshotFile.getParent(), "navs", ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tempFile);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                List<Nav> navList = List.copyOf(navs);
+                out.writeInt(navList.size());
+                for (Nav nav : navList) {
+                    writeMetadata(out, nav.getMetadata());
+                    Nav.NavSpec spec = nav.getSpec();
+                    out.writeBoolean(spec != null);
+                    if (spec != null) {
+                        writeString(out, spec.getUrl());
+                        writeString(out, spec.getDisplayName());
+                        writeString(out, spec.getLogo());
+                        writeString(out, spec.getDescription());
+                        writeInteger(out, spec.getPriority());
+                        writeString(out, spec.getGroupName());
+                    }
+                }
+                List<NavGroup> groupList = List.copyOf(groups);
+                out.writeInt(groupList.size());
+                for (NavGroup group : groupList) {
+                    writeMetadata(out, group.getMetadata());
+                    NavGroup.NavGroupSpec spec = group.getSpec();
+                    out.writeBoolean(spec != null);
+                    if (spec != null) {
+                        writeString(out, spec.getDisplayName());
+                        writeInteger(out, spec.getPriority());
+                        writeStrings(out, spec.getNavs());
+                        writeStrings(out, spec.getChildren());
+                    }
+                }
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    static List<Nav> readNavs(ByteBuffer in) {
+        GroupVersionKind gvk = GroupVersionKind.fromExtension(Nav.class);
+        int size = readCount(in, MIN_EXTENSION_BYTES);
+        List<Nav> navs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Nav nav = new Nav();
+            nav.setApiVersion(gvk.groupVersion().toString());
+            nav.setKind(gvk.kind());
+            nav.setMetadata(readMetadata(in));
+            if (in.get() != 0) {
+                Nav.NavSpec spec = new Nav.NavSpec();
+                spec.setUrl(readString(in));
+                spec.setDisplayName(readString(in));
+                spec.setLogo(readString(in));
+                spec.setDescription(readString(in));
+                spec.setPriority(readInteger(in));
+                spec.setGroupName(readString(in));
+                nav.setSpec(spec);
+            }
+            navs.add(nav);
+        }
+        return navs;
+    }
+
+    static List<NavGroup> readGroups(ByteBuffer in) {
+        GroupVersionKind gvk = GroupVersionKind.fromExtension(NavGroup.class);
+        int size = readCount(in, MIN_EXTENSION_BYTES);
+        List<NavGroup> groups = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            NavGroup group = new NavGroup();
+            group.setApiVersion(gvk.groupVersion().toString());
+            group.setKind(gvk.kind());
+            group.setMetadata(readMetadata(in));
+            if (in.get() != 0) {
+                NavGroup.NavGroupSpec spec = new NavGroup.NavGroupSpec();
+                spec.setDisplayName(readString(in));
+                spec.setPriority(readInteger(in));
+                List<String> navs = readStrings(in);
+                spec.setNavs(navs == null ? null : new LinkedHashSet<>(navs));
+                spec.setChildren(readStrings(in));
+                group.setSpec(spec);
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    static void writeMetadata(DataOutputStream out, MetadataOperator metadata) throws IOException {
+        writeString(out, metadata.getName());
+        writeString(out, metadata.getGenerateName());
+        writeLong(out, metadata.getVersion());
+        writeInstant(out, metadata.getCreationTimestamp());
+        writeInstant(out, metadata.getDeletionTimestamp());
+        writeMap(out, metadata.getLabels());
+        writeMap(out, metadata.getAnnotations());
+        writeStrings(out, metadata.getFinalizers() == null ? null
+            : List.copyOf(metadata.getFinalizers()));
+    }
+
+    static Metadata readMetadata(ByteBuffer in) {
+        Metadata metadata = new Metadata();
+        metadata.setName(readString(in));
+        metadata.setGenerateName(readString(in));
+        metadata.setVersion(readLong(in));
+        metadata.setCreationTimestamp(readInstant(in));
+        metadata.setDeletionTimestamp(readInstant(in));
+        metadata.setLabels(readMap(in));
+        metadata.setAnnotations(readMap(in));
+        List<String> finalizers = readStrings(in);
+        metadata.setFinalizers(finalizers == null ? null : new HashSet<>(finalizers));
+        return metadata;
+    }
+
+    static int readCount(ByteBuffer in, int minItemBytes) {
+        int count = in.getInt();
+        checkCount(count, in, minItemBytes);
+        return count;
+    }
+
+    /**
+     * Reject lengths and counts that cannot fit in the rest of the file, so that a corrupt
+     * snapshot fails fast instead of allocating huge arrays.
+     */
+    static void checkCount(int count, ByteBuffer in, int minItemBytes) {
+        if (count < 0 || (long) count * minItemBytes > in.remaining()) {
+            throw new IllegalStateException("Corrupt nav snapshot: count " + count
+                + " at position " + in.position() + " exceeds the remaining "
+                + in.remaining() + " bytes");
+        }
+    }
+
+    static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        checkCount(length, in, 1);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeInteger(DataOutputStream out, @Nullable Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    @Nullable
+    static Integer readInteger(ByteBuffer in) {
+        return in.get() == 0 ? null : in.getInt();
+    }
+
+    static void writeLong(DataOutputStream out, @Nullable Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    @Nullable
+    static Long readLong(ByteBuffer in) {
+        return in.get() == 0 ? null : in.getLong();
+    }
+
+    static void writeInstant(DataOutputStream out, @Nullable Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    @Nullable
+    static Instant readInstant(ByteBuffer in) {
+        return in.get() == 0 ? null : Instant.ofEpochSecond(in.getLong(), in.getInt());
+    }
+
+    static void writeStrings(DataOutputStream out, @Nullable Collection<String> values)
+        throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    @Nullable
+    static List<String> readStrings(ByteBuffer in) {
+        int size = in.getInt();
+        if (size == -1) {
+            return null;
+        }
+        checkCount(size, in, Integer.BYTES);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    static void writeMap(DataOutputStream out, @Nullable Map<String, String> map)
+        throws IOException {
+        if (map == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    @Nullable
+    static Map<String, String> readMap(ByteBuffer in) {
+        int size = in.getInt();
+        if (size == -1) {
+            return null;
+        }
+        checkCount(size, in, 2 * Integer.BYTES);
+        Map<String, String> map = new LinkedHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,230 @@
+package run.halo.navs.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.comparator.Comparators;
+import run.halo.app.extension.ListResult;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+
+/**
+ * Pre-sorted views of {@link NavStore} for paging navs without sorting them per request.
+ *
+ * <p>An index is an {@link OrderStatisticTree} per sort key, optionally restricted to one
+ * group. It is built from the store the first time a sort key is asked for and then
+ * maintained incrementally from store changes, so a page costs O(log n + size) and its total
+ * comes for free. Group indexes are only kept for groups present in the store and are dropped
+ * with their group.
+ *
+ * <p>Building an index takes O(n log n) and is done outside the monitor, so that store changes
+ * are not held up meanwhile. Changes that arrive during the build are collected and applied
+ * before the index is installed.
+ *
+ * @author zuoer
+ */
+@Slf4j
+@Component
+public class NavSortIndex implements NavStore.Listener {
+
+    private final NavStore navStore;
+
+    private final Map<IndexKey, Index> indexes = new HashMap<>();
+
+    /**
+     * The latest change per nav name, one map per build in progress, guarded by this. Held by
+     * identity, as the maps of two builds are equal whenever they caught the same changes.
+     */
+    private final Set<Map<String, Nav>> catchUps =
+        Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public NavSortIndex(NavStore navStore) {
+        this.navStore = navStore;
+        navStore.addListener(this);
+    }
+
+    /**
+     * A canonical form of the orders of {@code sort} that {@link #comparator(Sort)} takes into
+     * account, identifying the index sorted by that comparator.
+     */
+    public static String sortKey(Sort sort) {
+        Sort.Order ctOrder = sort.getOrderFor("creationTimestamp");
+        Sort.Order priorityOrder = sort.getOrderFor("priority");
+        return "creationTimestamp:" + (ctOrder == null ? "" : ctOrder.getDirection())
+            + ",priority:" + (priorityOrder == null ? "" : priorityOrder.getDirection());
+    }
+
+    /**
+     * The order of navs for the supported sort fields, creationTimestamp before priority,
+     * then newest first and by name, so that it is total. Navs without a creation time or
+     * priority sort first in ascending order.
+     */
+    public static Comparator<Nav> comparator(Sort sort) {
+        Sort.Order ctOrder = sort.getOrderFor("creationTimestamp");
+        Sort.Order priorityOrder = sort.getOrderFor("priority");
+        List<Comparator<Nav>> comparators = new ArrayList<>();
+        if (ctOrder != null) {
+            Comparator<Nav> comparator = creationTimestamp();
+            comparators.add(ctOrder.isDescending() ? comparator.reversed() : comparator);
+        }
+        if (priorityOrder != null) {
+            Comparator<Nav> comparator = Comparator.comparing(
+                nav -> nav.getSpec() == null ? null : nav.getSpec().getPriority(),
+                Comparators.nullsLow());
+            comparators.add(priorityOrder.isDescending() ? comparator.reversed() : comparator);
+        }
+        comparators.add(creationTimestamp().reversed());
+        comparators.add(Comparator.comparing(nav -> nav.getMetadata().getName()));
+        return comparators.stream()
+            .reduce(Comparator::thenComparing)
+            .orElseThrow();
+    }
+
+    private static Comparator<Nav> creationTimestamp() {
+        return Comparator.comparing(nav -> nav.getMetadata().getCreationTimestamp(),
+            Comparators.<Instant>nullsLow());
+    }
+
+    /**
+     * Whether the index is built, so that {@link #page} does not have to build it first.
+     */
+    public synchronized boolean isBuilt(String sortKey, @Nullable String groupName) {
+        return indexes.containsKey(new IndexKey(sortKey, groupName));
+    }
+
+    /**
+     * A page of navs, with the same paging rules as the extension client: pages start at 1
+     * and a size below 1 returns everything. Blocks while the index is built if it is not yet,
+     * see {@link #isBuilt}.
+     *
+     * @param sortKey a canonical description of the comparator, identifying the index
+     * @param comparator a total order of navs, used when the index is built
+     * @param groupName restrict to navs of this group, or null for all navs
+     */
+    public ListResult<Nav> page(String sortKey, Comparator<Nav> comparator,
+        @Nullable String groupName, int page, int size) {
+        IndexKey indexKey = new IndexKey(sortKey, groupName);
+        Map<String, Nav> catchUp = new HashMap<>();
+        synchronized (this) {
+            Index index = indexes.get(indexKey);
+            if (index != null) {
+                return page(index, page, size);
+            }
+            catchUps.add(catchUp);
+        }
+        Index built;
+        try {
+            built = build(indexKey, comparator);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                catchUps.remove(catchUp);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            catchUps.remove(catchUp);
+            catchUp.forEach(built::put);
+            Index index = indexes.get(indexKey);
+            if (index == null) {
+                index = built;
+                if (groupName == null || navStore.getGroup(groupName) != null) {
+                    indexes.put(indexKey, index);
+                }
+                // else a one-off index, so that arbitrary group names cannot grow the cache
+            }
+            return page(index, page, size);
+        }
+    }
+
+    private static ListResult<Nav> page(Index index, int page, int size) {
+        OrderStatisticTree<Nav> tree = index.tree;
+        int total = tree.size();
+        List<Nav> items;
+        if (size < 1) {
+            items = tree.range(0, total);
+        } else {
+            int offset = (int) Math.min(Integer.MAX_VALUE, (long) (Math.max(page, 1) - 1) * size);
+            items = tree.range(offset, size);
+        }
+        return new ListResult<>(page, size, total, items);
+    }
+
+    @Override
+    public synchronized void onNavChanged(@Nullable Nav old, @Nullable Nav current) {
+        String name = current != null ? current.getMetadata().getName()
+            : old != null ? old.getMetadata().getName() : null;
+        if (name == null) {
+            return;
+        }
+        indexes.forEach((key, index) -> index.put(name, current));
+        catchUps.forEach(catchUp -> catchUp.put(name, current));
+    }
+
+    @Override
+    public synchronized void onGroupChanged(@Nullable NavGroup old,
+        @Nullable NavGroup current) {
+        if (old != null && current == null) {
+            String groupName = old.getMetadata().getName();
+            indexes.keySet().removeIf(key -> groupName.equals(key.groupName()));
+        }
+    }
+
+    /**
+     * Build an index from the store as it is. A change the store applies meanwhile may or may
+     * not be seen, but is delivered to the listener afterwards either way.
+     */
+    private Index build(IndexKey key, Comparator<Nav> comparator) {
+        Index index = new Index(key, comparator);
+        navStore.navs().forEach(nav -> index.put(nav.getMetadata().getName(), nav));
+        log.debug("Built nav sort index with {} navs for group [{}]", index.tree.size(),
+            key.groupName());
+        return index;
+    }
+
+    /**
+     * A sorted tree together with the element it holds per nav name, so that an update
+     * removes exactly what was added before even if it was built from a newer copy than the
+     * change being applied.
+     */
+    private static final class Index {
+        private final IndexKey key;
+        private final OrderStatisticTree<Nav> tree;
+        private final Map<String, Nav> members = new HashMap<>();
+
+        private Index(IndexKey key, Comparator<Nav> comparator) {
+            this.key = key;
+            this.tree = new OrderStatisticTree<>(comparator);
+        }
+
+        private void put(String name, @Nullable Nav nav) {
+            Nav previous = members.remove(name);
+            if (previous != null) {
+                tree.remove(previous);
+            }
+            if (nav != null && key.matches(nav)) {
+                members.put(name, nav);
+                tree.add(nav);
+            }
+        }
+    }
+
+    record IndexKey(String sortKey, @Nullable String groupName) {
+
+        boolean matches(Nav nav) {
+            return groupName == null
+                || nav.getSpec() != null
+                && StringUtils.equals(groupName, nav.getSpec().getGroupName());
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package run.halo.navs.store;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.Extension;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+
+/**
+ * An in-memory mirror of all {@link Nav} and {@link NavGroup} extensions.
+ *
+ * <p>The store is warmed from the snapshot file on plugin start, then kept in sync with the
+ * extension store by the reconcilers. Finders read from here once {@link #isReady()} is true.
+ *
+ * @author zuoer
+ */
+@Slf4j
+@Component
+public class NavStore {
+
+    /**
+     * The sync that is open from construction until the snapshot has been restored, so that
+     * every write of the reconcilers wins over the snapshot.
+     */
+    public static final long STARTUP_SYNC = -1;
+
+    private final Map<String, Nav> navs = new ConcurrentHashMap<>();
+
+    private final Map<String, NavGroup> groups = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Changes waiting to be passed to the listeners, queued in the order they were applied.
+     */
+    private final Queue<Runnable> notifications = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong modCount = new AtomicLong();
+
+    /**
+     * Write sequence per name, including removed names, used by {@link #reconcile}. Only
+     * recorded while a sync is open, and pruned when the oldest open sync ends.
+     */
+    private final Map<String, Long> navTouched = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> groupTouched = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Number of open syncs per starting sequence, guarded by itself.
+     */
+    private final NavigableMap<Long, Integer> syncs = new TreeMap<>();
+
+    private volatile int openSyncs;
+
+    private volatile boolean ready;
+
+    public NavStore() {
+        syncs.put(STARTUP_SYNC, 1);
+        openSyncs = 1;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    /**
+     * Monotonic counter incremented on every change, used to skip writing unchanged snapshots.
+     */
+    public long modCount() {
+        return modCount.get();
+    }
+
+    public Collection<Nav> navs() {
+        return Collections.unmodifiableCollection(navs.values());
+    }
+
+    public Collection<NavGroup> groups() {
+        return Collections.unmodifiableCollection(groups.values());
+    }
+
+    @Nullable
+    public Nav getNav(String name) {
+        return navs.get(name);
+    }
+
+    @Nullable
+    public NavGroup getGroup(String name) {
+        return groups.get(name);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void putNav(Nav nav) {
+        apply(navs, navTouched, nav.getMetadata().getName(), nav, Long.MAX_VALUE,
+            this::notifyNav);
+    }
+
+    /**
+     * Put a nav returned by a write through the extension client, with {@code since} taken by
+     * {@link #beginSync()} before the write was sent. Unlike the reconcilers, which only see
+     * the write after its watch event, this makes it visible to the next read. The nav is not
+     * put back if it has been removed meanwhile, and never replaces a newer version.
+     */
+    public void putNav(Nav nav, long since) {
+        apply(navs, navTouched, nav.getMetadata().getName(), nav, since, this::notifyNav);
+    }
+
+    public void removeNav(String name) {
+        apply(navs, navTouched, name, null, Long.MAX_VALUE, this::notifyNav);
+    }
+
+    public void putGroup(NavGroup group) {
+        apply(groups, groupTouched, group.getMetadata().getName(), group, Long.MAX_VALUE,
+            this::notifyGroup);
+    }
+
+    public void removeGroup(String name) {
+        apply(groups, groupTouched, name, null, Long.MAX_VALUE, this::notifyGroup);
+    }
+
+    /**
+     * Open a sync before taking a full listing, and pass the returned sequence to
+     * {@link #reconcile(List, List, long)}, so that writes made while the listing is in flight
+     * win over it. Every sync must be ended with {@link #endSync(long)}.
+     */
+    public long beginSync() {
+        synchronized (syncs) {
+            // counted before the sequence is read, see apply
+            openSyncs++;
+            long since = sequence.get();
+            syncs.merge(since, 1, Integer::sum);
+            return since;
+        }
+    }
+
+    /**
+     * End a sync opened by {@link #beginSync()} or the {@link #STARTUP_SYNC}, and forget the
+     * writes no open sync can be affected by any more.
+     */
+    public void endSync(long since) {
+        synchronized (syncs) {
+            Integer count = syncs.get(since);
+            if (count == null) {
+                return;
+            }
+            if (count == 1) {
+                syncs.remove(since);
+            } else {
+                syncs.put(since, count - 1);
+            }
+            openSyncs--;
+            long oldest = syncs.isEmpty() ? Long.MAX_VALUE : syncs.firstKey();
+            navTouched.values().removeIf(seq -> seq <= oldest);
+            groupTouched.values().removeIf(seq -> seq <= oldest);
+        }
+    }
+
+    /**
+     * Reconcile the store against a full listing of the extension store taken within the
+     * sync opened at {@code since}. Entries are only replaced by newer resource versions, and
+     * stale entries are removed unless they were put since then. Names removed since then are
+     * not put back.
+     */
+    public void reconcile(List<Nav> latestNavs, List<NavGroup> latestGroups, long since) {
+        reconcile(navs, navTouched, latestNavs, since, this::notifyNav);
+        reconcile(groups, groupTouched, latestGroups, since, this::notifyGroup);
+        log.debug("Reconciled nav store with {} navs and {} groups", navs.size(),
+            groups.size());
+    }
+
+    private <E extends Extension> void reconcile(Map<String, E> items,
+        Map<String, Long> touched, List<E> latest, long since, BiConsumer<E, E> notifier) {
+        Set<String> names = new HashSet<>();
+        latest.forEach(item -> {
+            String name = item.getMetadata().getName();
+            names.add(name);
+            apply(items, touched, name, item, since, notifier);
+        });
+        Set.copyOf(items.keySet()).stream()
+            .filter(name -> !names.contains(name))
+            .forEach(name -> apply(items, touched, name, null, since, notifier));
+    }
+
+    /**
+     * Put or, if {@code value} is null, remove an entry and notify listeners. The change is
+     * decided atomically per name and queued for the listeners while the name is locked, so
+     * that listeners see the changes of one name in order, but they are called only after the
+     * map has released the name. If the name has been written after {@code since}, a removal
+     * is skipped and so is a put of a removed name. A put is also skipped if it would go back
+     * to an older resource version.
+     */
+    private <E extends Extension> void apply(Map<String, E> items, Map<String, Long> touched,
+        String name, @Nullable E value, long since, BiConsumer<E, E> notifier) {
+        items.compute(name, (key, old) -> {
+            Long lastWrite = touched.get(key);
+            if (lastWrite != null && lastWrite > since && (old == null || value == null)) {
+                return old;
+            }
+            if (value != null && !isNewer(old, value)) {
+                return old;
+            }
+            long seq = sequence.incrementAndGet();
+            if (openSyncs > 0) {
+                touched.put(key, seq);
+            } else {
+                // any sync opened from now on starts at or after this write
+                touched.remove(key);
+            }
+            if (old == null && value == null) {
+                return null;
+            }
+            if (!sameVersion(old, value)) {
+                modCount.incrementAndGet();
+                notifications.add(() -> notifier.accept(old, value));
+            }
+            return value;
+        });
+        dispatch();
+    }
+
+    /**
+     * Pass queued changes to the listeners, one at a time and outside the map's locks. By the
+     * time a write returns, its change has been dispatched, by this thread or another one.
+     */
+    private void dispatch() {
+        synchronized (notifications) {
+            Runnable notification;
+            while ((notification = notifications.poll()) != null) {
+                notification.run();
+            }
+        }
+    }
+
+    private void notifyNav(@Nullable Nav old, @Nullable Nav current) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onNavChanged(old, current);
+            } catch (RuntimeException e) {
+                log.warn("Nav store listener {} failed on nav [{}]",
+                    listener.getClass().getSimpleName(), nameOf(old, current), e);
+            }
+        }
+    }
+
+    private void notifyGroup(@Nullable NavGroup old, @Nullable NavGroup current) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onGroupChanged(old, current);
+            } catch (RuntimeException e) {
+                log.warn("Nav store listener {} failed on nav group [{}]",
+                    listener.getClass().getSimpleName(), nameOf(old, current), e);
+            }
+        }
+    }
+
+    @Nullable
+    static String nameOf(@Nullable Extension old, @Nullable Extension current) {
+        Extension extension = current != null ? current : old;
+        return extension == null ? null : extension.getMetadata().getName();
+    }
+
+    static boolean isNewer(@Nullable Extension old, Extension current) {
+        if (old == null) {
+            return true;
+        }
+        Long oldVersion = old.getMetadata().getVersion();
+        Long currentVersion = current.getMetadata().getVersion();
+        return oldVersion == null || currentVersion == null || currentVersion >= oldVersion;
+    }
+
+    static boolean sameVersion(@Nullable Extension old, @Nullable Extension current) {
+        if (old == null || current == null) {
+            return false;
+        }
+        Long oldVersion = old.getMetadata().getVersion();
+        return oldVersion != null
+            && Objects.equals(oldVersion, current.getMetadata().getVersion());
+    }
+
+    /**
+     * Receives every change applied to the store, with the previous and current value.
+     * Either side may be null for additions and removals respectively. Changes arrive one at a
+     * time in the order they were applied, outside the store's locks. A listener that throws
+     * is logged and does not keep the change from the store or from the other listeners.
+     * Listeners must not write back to the store.
+     */
+    public interface Listener {
+
+        default void onNavChanged(@Nullable Nav old, @Nullable Nav current) {
+        }
+
+        default void onGroupChanged(@Nullable NavGroup old, @Nullable NavGroup current) {
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package run.halo.navs.store;
+
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.halo.navs.Nav;
+
+/**
+ * Reverse index from the normalized host, the registrable domain and the normalized URL of
+ * {@link Nav.NavSpec#getUrl()} to nav names, maintained from {@link NavStore} changes.
+ *
+ * @author zuoer
+ */
+@Slf4j
+@Component
+public class NavUrlIndex implements NavStore.Listener {
+
+    /**
+     * Second-level labels under which domains are registered one level deeper, e.g.
+     * {@code example.com.cn}. A full public suffix list is not bundled with the plugin.
+     */
+    private static final Set<String> SECOND_LEVEL_LABELS =
+        Set.of("com", "net", "org", "gov", "edu", "ac", "co", "or", "ne", "go");
+
+    /**
+     * A scheme not followed by a port number, e.g. {@code mailto:} or {@code tel:}.
+     */
+    private static final Pattern OPAQUE_URL =
+        Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]*:(?!\\d)");
+
+    private final Map<String, Set<String>> byHost = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> byDomain = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> byUrl = new ConcurrentHashMap<>();
+
+    public NavUrlIndex(NavStore navStore) {
+        navStore.addListener(this);
+        navStore.navs().forEach(nav -> onNavChanged(null, nav));
+    }
+
+    public Set<String> findByHost(String host) {
+        String normalized = normalizeHost(host);
+        if (normalized == null) {
+            return Set.of();
+        }
+        return Set.copyOf(byHost.getOrDefault(normalized, Set.of()));
+    }
+
+    public Set<String> findByDomain(String host) {
+        String domain = registrableDomain(normalizeHost(host));
+        if (domain == null) {
+            return Set.of();
+        }
+        return Set.copyOf(byDomain.getOrDefault(domain, Set.of()));
+    }
+
+    /**
+     * Names of the navs pointing at the same normalized URL, except the given nav itself.
+     */
+    public Set<String> findDuplicates(String url, @Nullable String excludeName) {
+        String normalized = normalizeUrl(url);
+        if (normalized == null) {
+            return Set.of();
+        }
+        Set<String> names = byUrl.getOrDefault(normalized, Set.of());
+        if (excludeName == null || !names.contains(excludeName)) {
+            return Set.copyOf(names);
+        }
+        return names.stream()
+            .filter(name -> !name.equals(excludeName))
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void onNavChanged(@Nullable Nav old, @Nullable Nav current) {
+        String oldUrl = url(old);
+        String currentUrl = url(current);
+        if (old != null && current != null && Objects.equals(oldUrl, currentUrl)) {
+            return;
+        }
+        if (old != null) {
+            String name = old.getMetadata().getName();
+            String host = normalizeHost(oldUrl);
+            remove(byHost, host, name);
+            remove(byDomain, registrableDomain(host), name);
+            remove(byUrl, normalizeUrl(oldUrl), name);
+        }
+        if (current != null) {
+            String name = current.getMetadata().getName();
+            String host = normalizeHost(currentUrl);
+            add(byHost, host, name);
+            add(byDomain, registrableDomain(host), name);
+            String normalizedUrl = normalizeUrl(currentUrl);
+            add(byUrl, normalizedUrl, name);
+            if (normalizedUrl != null
+                && byUrl.getOrDefault(normalizedUrl, Set.of()).size() > 1) {
+                log.warn("Nav [{}] duplicates the URL of {}", name,
+                    findDuplicates(currentUrl, name));
+            }
+        }
+    }
+
+    @Nullable
+    static String url(@Nullable Nav nav) {
+        return nav == null || nav.getSpec() == null ? null : nav.getSpec().getUrl();
+    }
+
+    static void add(Map<String, Set<String>> index, @Nullable String key, String name) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(name);
+        }
+    }
+
+    static void remove(Map<String, Set<String>> index, @Nullable String key, String name) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, names) -> {
+                names.remove(name);
+                return names.isEmpty() ? null : names;
+            });
+        }
+    }
+
+    @Nullable
+    static URI parse(@Nullable String url) {
+        if (StringUtils.isBlank(url)) {
+            return null;
+        }
+        String value = url.trim();
+        if (!value.contains("://")) {
+            if (OPAQUE_URL.matcher(value).lookingAt()) {
+                // e.g. "mailto:someone@example.com", which has no host
+                return parseOrNull(value);
+            }
+            // protocol-relative or bare host, e.g. "//example.com" or "example.com/path"
+            value = "http://" + StringUtils.removeStart(value, "//");
+        }
+        return parseOrNull(toAsciiAuthority(value));
+    }
+
+    @Nullable
+    private static URI parseOrNull(String value) {
+        try {
+            return new URI(value);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replace an internationalized host name with its punycode form, since {@link URI} only
+     * parses ASCII host names.
+     */
+    static String toAsciiAuthority(String url) {
+        int start = url.indexOf("://") + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        String authority = url.substring(start, end);
+        if (StringUtils.isAsciiPrintable(authority)) {
+            return url;
+        }
+        int hostStart = authority.lastIndexOf('@') + 1;
+        int hostEnd = authority.lastIndexOf(':');
+        if (hostEnd < hostStart
+            || !StringUtils.isNumeric(authority.substring(hostEnd + 1))) {
+            hostEnd = authority.length();
+        }
+        String host = authority.substring(hostStart, hostEnd);
+        try {
+            host = IDN.toASCII(host, IDN.ALLOW_UNASSIGNED);
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+        return url.substring(0, start) + authority.substring(0, hostStart) + host
+            + authority.substring(hostEnd) + url.substring(end);
+    }
+
+    /**
+     * Lower-case ASCII host without a trailing dot and {@code www.} prefix, accepting either a
+     * URL or a bare host name.
+     */
+    @Nullable
+    public static String normalizeHost(@Nullable String urlOrHost) {
+        URI uri = parse(urlOrHost);
+        if (uri == null || uri.getHost() == null) {
+            return null;
+        }
+        String host = StringUtils.removeEnd(uri.getHost(), ".").toLowerCase(Locale.ROOT);
+        return StringUtils.removeStart(host, "www.");
+    }
+
+    /**
+     * Best-effort registrable domain of a normalized host, e.g. {@code example.com} for
+     * {@code blog.example.com} and {@code example.com.cn} for {@code a.example.com.cn}.
+     */
+    @Nullable
+    public static String registrableDomain(@Nullable String host) {
+        if (host == null) {
+            return null;
+        }
+        if (host.startsWith("[")
+            || host.chars().allMatch(c -> c == '.' || Character.isDigit(c))) {
+            // IP addresses have no registrable domain
+            return host;
+        }
+        String[] labels = host.split("\\.");
+        if (labels.length <= 2) {
+            return host;
+        }
+        int keep = labels[labels.length - 1].length() == 2
+            && SECOND_LEVEL_LABELS.contains(labels[labels.length - 2]) ? 3 : 2;
+        return String.join(".", Arrays.copyOfRange(labels, labels.length - keep, labels.length));
+    }
+
+    /**
+     * URL used to detect duplicates: normalized host and path without default port, fragment
+     * or trailing slash. Plain http and https count as the same URL.
+     */
+    @Nullable
+    public static String normalizeUrl(@Nullable String url) {
+        URI uri = parse(url);
+        String host = normalizeHost(url);
+        if (uri == null || host == null) {
+            return null;
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        boolean web = "http".equals(scheme) || "https".equals(scheme);
+        StringBuilder normalized = new StringBuilder();
+        if (!web) {
+            normalized.append(scheme).append("://");
+        }
+        normalized.append(host);
+        int port = uri.getPort();
+        if (port != -1 && !(web && (port == 80 || port == 443))) {
+            normalized.append(':').append(port);
+        }
+        String path = StringUtils.defaultString(uri.getRawPath());
+        normalized.append(StringUtils.removeEnd(path, "/"));
+        if (uri.getRawQuery() != null) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package run.halo.navs.store;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.util.Assert;
+
+/**
+ * A sorted set that can also seek by rank, implemented as a treap whose nodes carry the size
+ * of their subtree.
+ *
+ * <p>Adding and removing cost O(log n) expected, as does seeking to an offset; reading a page
+ * of k elements from there costs O(log n + k). Elements comparing equal replace each other, so
+ * the comparator must be a total order, e.g. end with a unique name. Not thread-safe.
+ *
+ * @param <E> the element type
+ * @author zuoer
+ */
+public final class OrderStatisticTree<E> {
+
+    private final Comparator<? super E> comparator;
+
+    private Node<E> root;
+
+    public OrderStatisticTree(Comparator<? super E> comparator) {
+        Assert.notNull(comparator, "The comparator must not be null");
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void add(E element) {
+        root = insert(root, element);
+    }
+
+    public void remove(E element) {
+        root = delete(root, element);
+    }
+
+    /**
+     * The element at the given rank, starting from 0.
+     */
+    public E get(int index) {
+        Assert.isTrue(index >= 0 && index < size(), "Index out of range: " + index);
+        Node<E> node = root;
+        int rank = index;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.value;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} elements in order, starting at rank {@code offset}.
+     */
+    public List<E> range(int offset, int limit) {
+        if (offset < 0 || limit <= 0 || offset >= size()) {
+            return new ArrayList<>();
+        }
+        List<E> result = new ArrayList<>(Math.min(limit, size() - offset));
+        // seek to the offset, keeping the ancestors still to be visited in order
+        Deque<Node<E>> stack = new ArrayDeque<>();
+        Node<E> node = root;
+        int rank = offset;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                stack.push(node);
+                node = node.left;
+            } else if (rank == leftSize) {
+                stack.push(node);
+                break;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        while (result.size() < limit && !stack.isEmpty()) {
+            Node<E> next = stack.pop();
+            result.add(next.value);
+            for (Node<E> child = next.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+        }
+        return result;
+    }
+
+    private Node<E> insert(Node<E> node, E element) {
+        if (node == null) {
+            return new Node<>(element);
+        }
+        int cmp = comparator.compare(element, node.value);
+        if (cmp == 0) {
+            node.value = element;
+            return node;
+        }
+        if (cmp < 0) {
+            node.left = insert(node.left, element);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, element);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<E> delete(Node<E> node, E element) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) {
+            node.left = delete(node.left, element);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, element);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private static <E> Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static final class Node<E> {
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private E value;
+        private int size = 1;
+        private Node<E> left;
+        private Node<E> right;
+
+        private Node(E value) {
+            this.value = value;
+        }
+    }
+}
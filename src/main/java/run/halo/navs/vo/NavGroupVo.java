@@ -22,6 +22,12 @@ public class NavGroupVo implements ExtensionVoOperator {
     @With
     List<NavVo> navs;
 
+    /**
+     * Number of all navs of the group, which may be more than {@link #navs} holds.
+     */
+    @With
+    Integer total;
+
     @With
     List<NavGroupVo> children;
 
@@ -31,6 +37,7 @@ public class NavGroupVo implements ExtensionVoOperator {
             .metadata(navGroup.getMetadata())
             .spec(navGroup.getSpec())
             .navs(List.of())
+            .total(0)
             .children(List.of())
             .build();
     }
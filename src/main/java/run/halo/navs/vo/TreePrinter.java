@@ -0,0 +1,72 @@
+package run.halo.navs.vo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streams a {@link VisualizableTreeNode} hierarchy to an {@link Appendable}.
+ *
+ * <p>Branch prefixes are written segment by segment from a bit per depth level instead of
+ * being concatenated per node, so the output is produced in time linear to its size.
+ *
+ * @author zuoer
+ */
+public final class TreePrinter {
+
+    private static final String BRANCH = "├── ";
+
+    private static final String LAST_BRANCH = "└── ";
+
+    private static final String PIPE = "│   ";
+
+    private static final String SPACE = "    ";
+
+    private TreePrinter() {
+    }
+
+    public static <T extends VisualizableTreeNode<T>> void print(T root, Appendable out)
+        throws IOException {
+        print(List.of(root), out, "", "");
+    }
+
+    public static <T extends VisualizableTreeNode<T>> void print(Collection<T> roots,
+        Appendable out) throws IOException {
+        print(roots, out, "", "");
+    }
+
+    /**
+     * Print the trees below the given roots.
+     *
+     * @param prefix written in front of each root
+     * @param childrenPrefix written in front of every descendant line
+     */
+    public static <T extends VisualizableTreeNode<T>> void print(Collection<T> roots,
+        Appendable out, String prefix, String childrenPrefix) throws IOException {
+        // bit d is set while the ancestor at depth d still has siblings to come
+        BitSet open = new BitSet();
+        try {
+            TreeTraversal.<T>create().walk(roots, (node, depth, last) -> {
+                try {
+                    if (depth == 0) {
+                        out.append(prefix);
+                    } else {
+                        out.append(childrenPrefix);
+                        for (int d = 1; d < depth; d++) {
+                            out.append(open.get(d) ? PIPE : SPACE);
+                        }
+                        out.append(last ? LAST_BRANCH : BRANCH);
+                    }
+                    open.set(depth, !last);
+                    out.append(node.nodeText()).append('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
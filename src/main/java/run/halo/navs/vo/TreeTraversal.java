@@ -0,0 +1,197 @@
+package run.halo.navs.vo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.springframework.util.Assert;
+
+/**
+ * Iterative depth-first traversal of {@link VisualizableTreeNode} trees.
+ *
+ * <p>The traversal keeps its own stack instead of recursing, so deep chains cannot overflow the
+ * thread stack. Nodes are tracked by identity on the current path: a child that is already an
+ * ancestor is reported to the {@link CycleHandler} with the offending path and is not
+ * descended into.
+ *
+ * @param <T> the node type
+ * @author zuoer
+ */
+public final class TreeTraversal<T extends VisualizableTreeNode<T>> {
+
+    public enum Order {
+        PRE_ORDER,
+        POST_ORDER
+    }
+
+    /**
+     * Visits a node with its depth (roots are at depth 0) and whether it is the last of its
+     * siblings.
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+        void visit(T node, int depth, boolean last);
+    }
+
+    /**
+     * Receives the path from a root to the node whose child closes a cycle, followed by that
+     * child.
+     */
+    @FunctionalInterface
+    public interface CycleHandler<T> {
+        void onCycle(List<T> path);
+    }
+
+    private Order order = Order.PRE_ORDER;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private boolean distinct;
+
+    private CycleHandler<T> cycleHandler = path -> {
+    };
+
+    private TreeTraversal() {
+    }
+
+    public static <T extends VisualizableTreeNode<T>> TreeTraversal<T> create() {
+        return new TreeTraversal<>();
+    }
+
+    public TreeTraversal<T> order(Order order) {
+        Assert.notNull(order, "The order must not be null");
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Do not descend below the given depth, roots being at depth 0.
+     */
+    public TreeTraversal<T> maxDepth(int maxDepth) {
+        Assert.isTrue(maxDepth >= 0, "The max depth must not be negative");
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Visit every node at most once per walk, even if it is reachable through several parents
+     * or listed among the roots as well.
+     */
+    public TreeTraversal<T> distinct() {
+        this.distinct = true;
+        return this;
+    }
+
+    public TreeTraversal<T> onCycle(CycleHandler<T> cycleHandler) {
+        Assert.notNull(cycleHandler, "The cycle handler must not be null");
+        this.cycleHandler = cycleHandler;
+        return this;
+    }
+
+    public void walk(T root, Visitor<T> visitor) {
+        walk(List.of(root), visitor);
+    }
+
+    public void walk(Collection<T> roots, Visitor<T> visitor) {
+        new Walk(visitor).run(roots);
+    }
+
+    /**
+     * The state of one walk. Every frame looks one visitable child ahead, so that a child
+     * knows whether it is the last one even when later siblings are skipped.
+     */
+    private final class Walk {
+
+        private final Visitor<T> visitor;
+
+        private final Set<T> onPath = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final Set<T> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final List<Frame<T>> stack = new ArrayList<>();
+
+        private Walk(Visitor<T> visitor) {
+            this.visitor = visitor;
+        }
+
+        private void run(Collection<T> roots) {
+            push(new Frame<>(null, -1, false, roots.iterator()));
+            while (!stack.isEmpty()) {
+                Frame<T> top = stack.get(stack.size() - 1);
+                T child = top.next;
+                if (child == null) {
+                    stack.remove(stack.size() - 1);
+                    if (top.node != null) {
+                        onPath.remove(top.node);
+                        if (order == Order.POST_ORDER) {
+                            visitor.visit(top.node, top.depth, top.last);
+                        }
+                    }
+                    continue;
+                }
+                top.next = lookAhead(top);
+                if (distinct && visited.contains(child)) {
+                    // reached through an earlier sibling's subtree in the meantime
+                    continue;
+                }
+                int depth = top.depth + 1;
+                boolean last = top.next == null;
+                visited.add(child);
+                if (order == Order.PRE_ORDER) {
+                    visitor.visit(child, depth, last);
+                }
+                List<T> grandChildren = depth < maxDepth ? child.getChildren() : null;
+                onPath.add(child);
+                push(new Frame<>(child, depth, last, grandChildren == null
+                    ? Collections.emptyIterator() : grandChildren.iterator()));
+            }
+        }
+
+        private void push(Frame<T> frame) {
+            stack.add(frame);
+            frame.next = lookAhead(frame);
+        }
+
+        /**
+         * The next child of the frame on top of the stack that will be visited, reporting and
+         * skipping children that close a cycle on the way.
+         */
+        private T lookAhead(Frame<T> frame) {
+            while (frame.children.hasNext()) {
+                T child = frame.children.next();
+                if (child == null || distinct && visited.contains(child)) {
+                    continue;
+                }
+                if (onPath.contains(child)) {
+                    List<T> path = new ArrayList<>(stack.size());
+                    for (int i = 1; i < stack.size(); i++) {
+                        path.add(stack.get(i).node);
+                    }
+                    path.add(child);
+                    cycleHandler.onCycle(path);
+                    continue;
+                }
+                return child;
+            }
+            return null;
+        }
+    }
+
+    private static final class Frame<T> {
+        private final T node;
+        private final int depth;
+        private final boolean last;
+        private final Iterator<T> children;
+        private T next;
+
+        private Frame(T node, int depth, boolean last, Iterator<T> children) {
+            this.node = node;
+            this.depth = depth;
+            this.last = last;
+            this.children = children;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package run.halo.navs.vo;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -13,23 +14,24 @@ public interface VisualizableTreeNode<T extends VisualizableTreeNode<T>> {
     /**
      * Visualize tree node.
      */
+    @SuppressWarnings("unchecked")
     default void print(StringBuilder buffer, String prefix, String childrenPrefix) {
-        buffer.append(prefix);
-        buffer.append(nodeText());
-        buffer.append('\n');
-        if (getChildren() == null) {
-            return;
-        }
-        for (Iterator<T> it = getChildren().iterator(); it.hasNext(); ) {
-            T next = it.next();
-            if (it.hasNext()) {
-                next.print(buffer, childrenPrefix + "├── ", childrenPrefix + "│   ");
-            } else {
-                next.print(buffer, childrenPrefix + "└── ", childrenPrefix + "    ");
-            }
+        try {
+            TreePrinter.print(List.of((T) this), buffer, prefix, childrenPrefix);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Visualize tree node to a writer or any other appendable.
+     */
+    @SuppressWarnings("unchecked")
+    default void print(Appendable out) throws IOException {
+        TreePrinter.print((T) this, out);
+    }
+
     String nodeText();
 
     List<T> getChildren();
@@ -0,0 +1,225 @@
+package run.halo.navs.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import run.halo.app.extension.ListResult;
+import run.halo.app.extension.Metadata;
+import run.halo.navs.Nav;
+import run.halo.navs.NavGroup;
+
+/**
+ * Tests for {@link NavSortIndex}, checked against the paging of the extension client, which
+ * filters and sorts all navs and then takes {@link ListResult#subList} of them.
+ *
+ * @author zuoer
+ */
+class NavSortIndexTest {
+
+    static final List<Sort> SORTS = List.of(
+        Sort.unsorted(),
+        Sort.by(Sort.Order.asc("creationTimestamp")),
+        Sort.by(Sort.Order.desc("creationTimestamp")),
+        Sort.by(Sort.Order.asc("priority")),
+        Sort.by(Sort.Order.desc("priority")),
+        Sort.by(Sort.Order.asc("priority"), Sort.Order.desc("creationTimestamp")),
+        Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("creationTimestamp")));
+
+    static final List<String> GROUPS = List.of("a", "b");
+
+    static final Instant EPOCH = Instant.parse("2023-08-01T00:00:00Z");
+
+    /**
+     * Pairs of page and size: first, middle and last pages, past the end, whole lists and
+     * pages below 1.
+     */
+    static final int[][] PAGES = {
+        {1, 10}, {2, 10}, {3, 10}, {4, 10}, {5, 10}, {100, 10},
+        {1, 7}, {6, 7}, {1, 1}, {45, 1},
+        {0, 10}, {-1, 10}, {1, 0}, {2, 0}, {1, -1}, {1, Integer.MAX_VALUE},
+    };
+
+    final Random random = new Random(7);
+
+    final NavStore navStore = new NavStore();
+
+    final NavSortIndex navSortIndex = new NavSortIndex(navStore);
+
+    /**
+     * Like {@code ReactiveExtensionClient#list(Class, Predicate, Comparator, int, int)}.
+     */
+    static ListResult<Nav> list(Collection<Nav> navs, Sort sort, @Nullable String groupName,
+        int page, int size) {
+        List<Nav> matched = navs.stream()
+            .filter(nav -> groupName == null || nav.getSpec() != null
+                && StringUtils.equals(groupName, nav.getSpec().getGroupName()))
+            .sorted(NavSortIndex.comparator(sort))
+            .toList();
+        return new ListResult<>(page, size, matched.size(),
+            ListResult.subList(matched, page, size));
+    }
+
+    static void assertPage(ListResult<Nav> expected, ListResult<Nav> actual, String message) {
+        assertEquals(expected.getPage(), actual.getPage(), message);
+        assertEquals(expected.getSize(), actual.getSize(), message);
+        assertEquals(expected.getTotal(), actual.getTotal(), message);
+        assertEquals(names(expected.getItems()), names(actual.getItems()), message);
+    }
+
+    static List<String> names(List<Nav> navs) {
+        return navs.stream().map(nav -> nav.getMetadata().getName()).toList();
+    }
+
+    void assertPagesMatch(String when) {
+        List<String> groupNames = new ArrayList<>(GROUPS);
+        groupNames.add(null);
+        groupNames.add("missing");
+        for (Sort sort : SORTS) {
+            for (String groupName : groupNames) {
+                for (int[] paging : PAGES) {
+                    int page = paging[0];
+                    int size = paging[1];
+                    assertPage(list(navStore.navs(), sort, groupName, page, size),
+                        navSortIndex.page(NavSortIndex.sortKey(sort),
+                            NavSortIndex.comparator(sort), groupName, page, size),
+                        when + ": " + sort + " in group " + groupName + ", page " + page
+                            + " of size " + size);
+                }
+            }
+        }
+    }
+
+    Nav randomNav(String name, long version) {
+        Nav nav = new Nav();
+        Metadata metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setVersion(version);
+        // few distinct timestamps and priorities, so that the tie breakers matter
+        metadata.setCreationTimestamp(EPOCH.plusSeconds(random.nextInt(5)));
+        nav.setMetadata(metadata);
+        Nav.NavSpec spec = new Nav.NavSpec();
+        spec.setUrl("https://" + name + ".example.com");
+        int priority = random.nextInt(6);
+        spec.setPriority(priority == 5 ? null : priority);
+        int group = random.nextInt(GROUPS.size() + 1);
+        spec.setGroupName(group == GROUPS.size() ? null : GROUPS.get(group));
+        nav.setSpec(spec);
+        return nav;
+    }
+
+    static NavGroup group(String name) {
+        NavGroup group = new NavGroup();
+        Metadata metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setVersion(1L);
+        group.setMetadata(metadata);
+        return group;
+    }
+
+    void putNavs(int count) {
+        for (int i = 0; i < count; i++) {
+            navStore.putNav(randomNav("nav-" + i, 1));
+        }
+    }
+
+    @Test
+    void shouldPageLikeTheExtensionClient() {
+        GROUPS.forEach(name -> navStore.putGroup(group(name)));
+        putNavs(45);
+
+        assertPagesMatch("built");
+        assertPagesMatch("cached");
+    }
+
+    @Test
+    void shouldFollowStoreChanges() {
+        GROUPS.forEach(name -> navStore.putGroup(group(name)));
+        putNavs(45);
+        assertPagesMatch("built");
+
+        for (int version = 2; version < 12; version++) {
+            for (int i = 0; i < 45; i += 1 + random.nextInt(4)) {
+                if (random.nextInt(5) == 0) {
+                    navStore.removeNav("nav-" + i);
+                } else {
+                    // moves between groups, priorities and creation times
+                    navStore.putNav(randomNav("nav-" + i, version));
+                }
+            }
+        }
+        Nav withoutSpec = randomNav("nav-without-spec", 1);
+        withoutSpec.setSpec(null);
+        navStore.putNav(withoutSpec);
+
+        assertPagesMatch("changed");
+    }
+
+    @Test
+    void shouldPageEmptyStore() {
+        assertPagesMatch("empty");
+    }
+
+    @Test
+    void shouldOnlyCacheIndexesOfKnownGroups() {
+        navStore.putGroup(group("a"));
+        putNavs(10);
+        String sortKey = NavSortIndex.sortKey(Sort.unsorted());
+
+        navSortIndex.page(sortKey, NavSortIndex.comparator(Sort.unsorted()), "a", 1, 10);
+        navSortIndex.page(sortKey, NavSortIndex.comparator(Sort.unsorted()), "missing", 1, 10);
+
+        assertTrue(navSortIndex.isBuilt(sortKey, "a"));
+        assertFalse(navSortIndex.isBuilt(sortKey, "missing"));
+        navStore.removeGroup("a");
+        assertFalse(navSortIndex.isBuilt(sortKey, "a"));
+    }
+
+    @Test
+    void shouldSortNullsFirstAndBreakTiesByNewestThenName() {
+        Nav first = sortable("first", 0, 1);
+        Nav noPriority = sortable("no-priority", 0, null);
+        Nav older = sortable("older", 0, 0);
+        Nav newer = sortable("newer", 1, 0);
+        Nav sameAsNewer = sortable("same-as-newer", 1, 0);
+        List<Nav> navs = List.of(first, noPriority, older, newer, sameAsNewer);
+
+        assertEquals(List.of("no-priority", "newer", "same-as-newer", "older", "first"),
+            names(sorted(navs, Sort.by(Sort.Order.asc("priority")))));
+        assertEquals(List.of("first", "newer", "same-as-newer", "older", "no-priority"),
+            names(sorted(navs, Sort.by(Sort.Order.desc("priority")))));
+        assertEquals(List.of("first", "no-priority", "older", "newer", "same-as-newer"),
+            names(sorted(navs, Sort.by(Sort.Order.asc("creationTimestamp")))));
+        assertEquals(List.of("newer", "same-as-newer", "first", "no-priority", "older"),
+            names(sorted(navs, Sort.unsorted())));
+    }
+
+    @Test
+    void shouldDescribeSortsByTheSupportedFields() {
+        assertEquals("creationTimestamp:,priority:", NavSortIndex.sortKey(Sort.unsorted()));
+        assertEquals("creationTimestamp:DESC,priority:ASC", NavSortIndex.sortKey(
+            Sort.by(Sort.Order.asc("priority"), Sort.Order.desc("creationTimestamp"))));
+        assertEquals(NavSortIndex.sortKey(Sort.by(Sort.Order.asc("priority"))),
+            NavSortIndex.sortKey(Sort.by(Sort.Order.asc("priority"), Sort.Order.asc("url"))));
+    }
+
+    static List<Nav> sorted(List<Nav> navs, Sort sort) {
+        return navs.stream().sorted(NavSortIndex.comparator(sort)).toList();
+    }
+
+    static Nav sortable(String name, long createdAt, @Nullable Integer priority) {
+        Nav nav = NavUrlIndexTest.nav(name, 1, "https://example.com");
+        nav.getMetadata().setCreationTimestamp(EPOCH.plusSeconds(createdAt));
+        nav.getSpec().setPriority(priority);
+        return nav;
+    }
+}
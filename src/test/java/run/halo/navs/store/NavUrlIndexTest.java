@@ -0,0 +1,120 @@
+package run.halo.navs.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import run.halo.app.extension.Metadata;
+import run.halo.navs.Nav;
+
+/**
+ * Tests for {@link NavUrlIndex}.
+ *
+ * @author zuoer
+ */
+class NavUrlIndexTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "https://www.Example.com/path, example.com",
+        "example.com, example.com",
+        "WWW.example.com, example.com",
+        "www.example.com:8080, example.com",
+        "//cdn.example.com/x, cdn.example.com",
+        "http://Example.COM.:8080/, example.com",
+        "http://user@www.example.com, example.com",
+        "'  https://example.com  ', example.com",
+        "https://bücher.de/, xn--bcher-kva.de",
+        "bücher.de/path, xn--bcher-kva.de",
+        "http://例子.测试/, xn--fsqu00a.xn--0zwm56d",
+        "http://[::1]:8080/, [::1]",
+        "http://192.168.0.1/, 192.168.0.1",
+        "localhost:3000, localhost",
+        "mailto:someone@example.com, ",
+        "not a url, ",
+        "'   ', ",
+        ", ",
+    })
+    void shouldNormalizeHost(String urlOrHost, String expected) {
+        assertEquals(expected, NavUrlIndex.normalizeHost(urlOrHost));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "example.com, example.com",
+        "blog.example.com, example.com",
+        "a.b.c.example.org, example.org",
+        "example.co.uk, example.co.uk",
+        "a.b.example.co.uk, example.co.uk",
+        "a.example.com.cn, example.com.cn",
+        "example.com.au, example.com.au",
+        "a.example.io, example.io",
+        "shop.xn--bcher-kva.de, xn--bcher-kva.de",
+        "localhost, localhost",
+        "192.168.0.1, 192.168.0.1",
+        "[::1], [::1]",
+        ", ",
+    })
+    void shouldResolveRegistrableDomain(String host, String expected) {
+        assertEquals(expected, NavUrlIndex.registrableDomain(host));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "https://www.example.com/, example.com",
+        "HTTPS://example.com, example.com",
+        "http://example.com:80/a/, example.com/a",
+        "https://example.com:443/a, example.com/a",
+        "https://example.com:8443/a, example.com:8443/a",
+        "https://example.com/a#fragment, example.com/a",
+        "https://example.com/a?b=1, example.com/a?b=1",
+        "https://example.com/a%20b, example.com/a%20b",
+        "http://EXAMPLE.com/Path, example.com/Path",
+        "example.com/path, example.com/path",
+        "https://bücher.de/x, xn--bcher-kva.de/x",
+        "ftp://files.example.com/pub/, ftp://files.example.com/pub",
+        "ftp://files.example.com:21/, ftp://files.example.com:21",
+        "mailto:someone@example.com, ",
+        "not a url, ",
+        ", ",
+    })
+    void shouldNormalizeUrl(String url, String expected) {
+        assertEquals(expected, NavUrlIndex.normalizeUrl(url));
+    }
+
+    @Test
+    void shouldFollowStoreChanges() {
+        NavStore navStore = new NavStore();
+        NavUrlIndex index = new NavUrlIndex(navStore);
+
+        navStore.putNav(nav("a", 1, "https://www.example.com/"));
+        navStore.putNav(nav("b", 1, "http://example.com"));
+        navStore.putNav(nav("c", 1, "https://blog.example.com/post"));
+
+        assertEquals(Set.of("a", "b"), index.findByHost("example.com"));
+        assertEquals(Set.of("a", "b", "c"), index.findByDomain("https://example.com"));
+        assertEquals(Set.of("b"), index.findDuplicates("https://example.com/", "a"));
+
+        navStore.putNav(nav("b", 2, "https://other.org"));
+        navStore.removeNav("c");
+
+        assertEquals(Set.of("a"), index.findByHost("www.example.com"));
+        assertEquals(Set.of("a"), index.findByDomain("example.com"));
+        assertEquals(Set.of("b"), index.findByHost("other.org"));
+        assertEquals(Set.of(), index.findDuplicates("https://example.com/", "a"));
+    }
+
+    static Nav nav(String name, long version, String url) {
+        Nav nav = new Nav();
+        Metadata metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setVersion(version);
+        nav.setMetadata(metadata);
+        Nav.NavSpec spec = new Nav.NavSpec();
+        spec.setUrl(url);
+        nav.setSpec(spec);
+        return nav;
+    }
+}
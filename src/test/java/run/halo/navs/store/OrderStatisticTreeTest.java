@@ -0,0 +1,151 @@
+package run.halo.navs.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link OrderStatisticTree}, checked against a sorted list.
+ *
+ * @author zuoer
+ */
+class OrderStatisticTreeTest {
+
+    /**
+     * Entries with the same key compare equal, so that adding one replaces the other.
+     */
+    record Entry(int key, int payload) {
+    }
+
+    static final Comparator<Entry> BY_KEY = Comparator.comparingInt(Entry::key);
+
+    static OrderStatisticTree<Entry> treeOf(int... keys) {
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(BY_KEY);
+        for (int key : keys) {
+            tree.add(new Entry(key, 0));
+        }
+        return tree;
+    }
+
+    static List<Integer> keys(List<Entry> entries) {
+        return entries.stream().map(Entry::key).toList();
+    }
+
+    @Test
+    void shouldMatchSortedListOnRandomChanges() {
+        Random random = new Random(42);
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(BY_KEY);
+        List<Entry> oracle = new ArrayList<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            Entry entry = new Entry(random.nextInt(300), i);
+            int at = indexOf(oracle, entry.key());
+            if (random.nextInt(3) == 0) {
+                tree.remove(entry);
+                if (at >= 0) {
+                    oracle.remove(at);
+                }
+            } else {
+                // adds a new key or replaces the entry of an existing one
+                tree.add(entry);
+                if (at >= 0) {
+                    oracle.set(at, entry);
+                } else {
+                    oracle.add(-at - 1, entry);
+                }
+            }
+
+            assertEquals(oracle.size(), tree.size());
+            if (i % 100 == 0) {
+                assertEquals(oracle, tree.range(0, tree.size()), "after change " + i);
+            }
+            if (!oracle.isEmpty()) {
+                int rank = random.nextInt(oracle.size());
+                assertSame(oracle.get(rank), tree.get(rank));
+                int limit = 1 + random.nextInt(20);
+                assertEquals(oracle.subList(rank, Math.min(rank + limit, oracle.size())),
+                    tree.range(rank, limit));
+            }
+        }
+        assertEquals(oracle, tree.range(0, tree.size()));
+    }
+
+    static int indexOf(List<Entry> sorted, int key) {
+        int low = 0;
+        int high = sorted.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Integer.compare(sorted.get(mid).key(), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Test
+    void shouldReplaceEqualElements() {
+        OrderStatisticTree<Entry> tree = treeOf(1, 2, 3);
+        Entry replacement = new Entry(2, 7);
+
+        tree.add(replacement);
+
+        assertEquals(3, tree.size());
+        assertSame(replacement, tree.get(1));
+        tree.remove(new Entry(2, 0));
+        assertEquals(List.of(1, 3), keys(tree.range(0, 3)));
+    }
+
+    @Test
+    void shouldIgnoreRemovingMissingElements() {
+        OrderStatisticTree<Entry> tree = treeOf(1, 2, 3);
+
+        tree.remove(new Entry(4, 0));
+
+        assertEquals(List.of(1, 2, 3), keys(tree.range(0, 3)));
+    }
+
+    @Test
+    void shouldReadRangesUpToTheEnd() {
+        OrderStatisticTree<Entry> tree = treeOf(5, 3, 9, 1, 7, 2, 8, 4, 6, 0);
+
+        assertEquals(List.of(0, 1, 2), keys(tree.range(0, 3)));
+        assertEquals(List.of(3, 4, 5), keys(tree.range(3, 3)));
+        // the last page is short
+        assertEquals(List.of(9), keys(tree.range(9, 3)));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), keys(tree.range(0, 10)));
+        assertEquals(tree.range(0, 10), tree.range(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void shouldReadEmptyRangesOutOfBounds() {
+        OrderStatisticTree<Entry> tree = treeOf(1, 2, 3);
+
+        assertEquals(List.of(), tree.range(3, 1));
+        assertEquals(List.of(), tree.range(Integer.MAX_VALUE, 1));
+        assertEquals(List.of(), tree.range(-1, 1));
+        assertEquals(List.of(), tree.range(0, 0));
+        assertEquals(List.of(), tree.range(0, -1));
+        assertEquals(List.of(), treeOf().range(0, 1));
+    }
+
+    @Test
+    void shouldRejectRanksOutOfBounds() {
+        OrderStatisticTree<Entry> tree = treeOf(1, 2, 3);
+
+        assertEquals(3, tree.get(2).key());
+        assertThrows(IllegalArgumentException.class, () -> tree.get(3));
+        assertThrows(IllegalArgumentException.class, () -> tree.get(-1));
+        assertThrows(IllegalArgumentException.class, () -> treeOf().get(0));
+    }
+}
@@ -0,0 +1,42 @@
+package run.halo.navs.vo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A plain tree node for traversal and printer tests. Children may be null or close cycles.
+ *
+ * @author zuoer
+ */
+final class TestNode implements VisualizableTreeNode<TestNode> {
+
+    private final String name;
+
+    private final List<TestNode> children = new ArrayList<>();
+
+    TestNode(String name, TestNode... children) {
+        this.name = name;
+        this.children.addAll(Arrays.asList(children));
+    }
+
+    TestNode add(TestNode child) {
+        children.add(child);
+        return this;
+    }
+
+    @Override
+    public String nodeText() {
+        return name;
+    }
+
+    @Override
+    public List<TestNode> getChildren() {
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
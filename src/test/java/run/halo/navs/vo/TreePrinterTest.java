@@ -0,0 +1,137 @@
+package run.halo.navs.vo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TreePrinter}, checked against the recursive printer it replaced.
+ *
+ * @author zuoer
+ */
+class TreePrinterTest {
+
+    /**
+     * The former recursive {@code VisualizableTreeNode.print}, valid for trees without null
+     * children and cycles.
+     */
+    static void recursivePrint(TestNode node, StringBuilder buffer, String prefix,
+        String childrenPrefix) {
+        buffer.append(prefix);
+        buffer.append(node.nodeText());
+        buffer.append('\n');
+        for (Iterator<TestNode> it = node.getChildren().iterator(); it.hasNext(); ) {
+            TestNode next = it.next();
+            if (it.hasNext()) {
+                recursivePrint(next, buffer, childrenPrefix + "├── ", childrenPrefix + "│   ");
+            } else {
+                recursivePrint(next, buffer, childrenPrefix + "└── ", childrenPrefix + "    ");
+            }
+        }
+    }
+
+    static String print(TestNode root) {
+        StringBuilder buffer = new StringBuilder();
+        root.print(buffer, "", "");
+        return buffer.toString();
+    }
+
+    static String recursivePrint(TestNode root) {
+        StringBuilder buffer = new StringBuilder();
+        recursivePrint(root, buffer, "", "");
+        return buffer.toString();
+    }
+
+    @Test
+    void shouldPrintSampleTree() {
+        assertEquals("""
+            a
+            ├── b
+            │   ├── d
+            │   └── e
+            └── c
+                └── f
+            """, print(TreeTraversalTest.sampleTree()));
+    }
+
+    @Test
+    void shouldMatchRecursivePrinter() {
+        List<TestNode> trees = List.of(
+            new TestNode("leaf"),
+            TreeTraversalTest.sampleTree(),
+            new TestNode("wide", new TestNode("1"), new TestNode("2"), new TestNode("3")),
+            new TestNode("deep", new TestNode("1", new TestNode("2", new TestNode("3")))),
+            new TestNode("mixed",
+                new TestNode("x", new TestNode("x1", new TestNode("x11")), new TestNode("x2")),
+                new TestNode("y"),
+                new TestNode("z", new TestNode("z1"), new TestNode("z2", new TestNode("z21")))));
+
+        for (TestNode tree : trees) {
+            assertEquals(recursivePrint(tree), print(tree), tree.nodeText());
+        }
+    }
+
+    @Test
+    void shouldMatchRecursivePrinterWithPrefixes() {
+        TestNode tree = TreeTraversalTest.sampleTree();
+        StringBuilder expected = new StringBuilder();
+        recursivePrint(tree, expected, "> ", "  ");
+        StringBuilder actual = new StringBuilder();
+
+        tree.print(actual, "> ", "  ");
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void shouldSkipNullChildren() {
+        TestNode tree = new TestNode("a", new TestNode("b", null, new TestNode("c")), null);
+
+        assertEquals("""
+            a
+            └── b
+                └── c
+            """, print(tree));
+    }
+
+    @Test
+    void shouldSkipCycleChildren() {
+        TestNode a = new TestNode("a");
+        TestNode b = new TestNode("b", a);
+        a.add(b).add(new TestNode("c")).add(a);
+
+        // b keeps its place, its child a and the trailing a close cycles and are left out
+        assertEquals("""
+            a
+            ├── b
+            └── c
+            """, print(a));
+    }
+
+    @Test
+    void shouldPrintToWriter() throws IOException {
+        TestNode tree = TreeTraversalTest.sampleTree();
+        StringWriter writer = new StringWriter();
+
+        tree.print(writer);
+
+        assertEquals(recursivePrint(tree), writer.toString());
+    }
+
+    @Test
+    void shouldPrintSeveralRoots() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        TreePrinter.print(List.of(new TestNode("a", new TestNode("b")), new TestNode("c")), out);
+
+        assertEquals("""
+            a
+            └── b
+            c
+            """, out.toString());
+    }
+}
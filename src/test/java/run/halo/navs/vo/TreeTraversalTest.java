@@ -0,0 +1,160 @@
+package run.halo.navs.vo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TreeTraversal}.
+ *
+ * @author zuoer
+ */
+class TreeTraversalTest {
+
+    /**
+     * a
+     * ├── b
+     * │   ├── d
+     * │   └── e
+     * └── c
+     *     └── f
+     */
+    static TestNode sampleTree() {
+        return new TestNode("a",
+            new TestNode("b", new TestNode("d"), new TestNode("e")),
+            new TestNode("c", new TestNode("f")));
+    }
+
+    /**
+     * Visits as {@code name@depth}, with a trailing {@code $} for the last sibling.
+     */
+    static List<String> walk(TreeTraversal<TestNode> traversal, List<TestNode> roots) {
+        List<String> visits = new ArrayList<>();
+        traversal.walk(roots, (node, depth, last) ->
+            visits.add(node.nodeText() + "@" + depth + (last ? "$" : "")));
+        return visits;
+    }
+
+    @Test
+    void shouldWalkInPreOrder() {
+        List<String> visits = walk(TreeTraversal.create(), List.of(sampleTree()));
+
+        assertEquals(List.of("a@0$", "b@1", "d@2", "e@2$", "c@1$", "f@2$"), visits);
+    }
+
+    @Test
+    void shouldWalkInPostOrder() {
+        List<String> visits = walk(TreeTraversal.<TestNode>create()
+            .order(TreeTraversal.Order.POST_ORDER), List.of(sampleTree()));
+
+        assertEquals(List.of("d@2", "e@2$", "b@1", "f@2$", "c@1$", "a@0$"), visits);
+    }
+
+    @Test
+    void shouldWalkSeveralRoots() {
+        List<String> visits = walk(TreeTraversal.create(),
+            List.of(new TestNode("a", new TestNode("b")), new TestNode("c")));
+
+        assertEquals(List.of("a@0", "b@1$", "c@0$"), visits);
+    }
+
+    @Test
+    void shouldNotDescendBelowMaxDepth() {
+        assertEquals(List.of("a@0$"),
+            walk(TreeTraversal.<TestNode>create().maxDepth(0), List.of(sampleTree())));
+        assertEquals(List.of("a@0$", "b@1", "c@1$"),
+            walk(TreeTraversal.<TestNode>create().maxDepth(1), List.of(sampleTree())));
+        assertEquals(List.of("b@1", "c@1$", "a@0$"),
+            walk(TreeTraversal.<TestNode>create().maxDepth(1)
+                .order(TreeTraversal.Order.POST_ORDER), List.of(sampleTree())));
+    }
+
+    @Test
+    void shouldRejectNegativeMaxDepth() {
+        assertThrows(IllegalArgumentException.class,
+            () -> TreeTraversal.<TestNode>create().maxDepth(-1));
+    }
+
+    @Test
+    void shouldSkipNullChildrenAndComputeLastFromVisitedSiblings() {
+        TestNode root = new TestNode("a", new TestNode("b"), null);
+
+        assertEquals(List.of("a@0$", "b@1$"), walk(TreeTraversal.create(), List.of(root)));
+    }
+
+    @Test
+    void shouldReportSelfLoop() {
+        TestNode a = new TestNode("a");
+        a.add(a);
+        List<List<TestNode>> cycles = new ArrayList<>();
+
+        List<String> visits = walk(TreeTraversal.<TestNode>create().onCycle(cycles::add),
+            List.of(a));
+
+        assertEquals(List.of("a@0$"), visits);
+        assertEquals(List.of(List.of(a, a)), cycles);
+    }
+
+    @Test
+    void shouldReportTwoNodeCycle() {
+        TestNode a = new TestNode("a");
+        TestNode b = new TestNode("b", a);
+        a.add(b);
+        List<List<TestNode>> cycles = new ArrayList<>();
+
+        List<String> visits = walk(TreeTraversal.<TestNode>create().onCycle(cycles::add),
+            List.of(a));
+
+        assertEquals(List.of("a@0$", "b@1$"), visits);
+        assertEquals(List.of(List.of(a, b, a)), cycles);
+    }
+
+    @Test
+    void shouldReportCycleBelowRoot() {
+        TestNode c = new TestNode("c");
+        TestNode b = new TestNode("b", c);
+        c.add(b);
+        TestNode a = new TestNode("a", b, new TestNode("d"));
+        List<List<TestNode>> cycles = new ArrayList<>();
+
+        List<String> visits = walk(TreeTraversal.<TestNode>create().onCycle(cycles::add),
+            List.of(a));
+
+        assertEquals(List.of("a@0$", "b@1", "c@2$", "d@1$"), visits);
+        assertEquals(List.of(List.of(a, b, c, b)), cycles);
+    }
+
+    @Test
+    void shouldVisitSharedNodesOnceWhenDistinct() {
+        TestNode shared = new TestNode("s");
+        TestNode a = new TestNode("a", new TestNode("b", shared), shared);
+
+        assertEquals(List.of("a@0$", "b@1", "s@2$", "s@1$"),
+            walk(TreeTraversal.create(), List.of(a)));
+        // s is still unvisited when b is, so b is not flagged as the last child of a
+        assertEquals(List.of("a@0$", "b@1", "s@2$"),
+            walk(TreeTraversal.<TestNode>create().distinct(), List.of(a)));
+        assertEquals(List.of("a@0", "b@1", "s@2$"),
+            walk(TreeTraversal.<TestNode>create().distinct(), List.of(a, shared)));
+    }
+
+    @Test
+    void shouldWalkDeepChainsWithoutRecursion() {
+        TestNode root = new TestNode("0");
+        TestNode node = root;
+        for (int i = 1; i < 100_000; i++) {
+            TestNode child = new TestNode(String.valueOf(i));
+            node.add(child);
+            node = child;
+        }
+        int[] deepest = {-1};
+
+        TreeTraversal.<TestNode>create()
+            .walk(root, (visited, depth, last) -> deepest[0] = Math.max(deepest[0], depth));
+
+        assertEquals(99_999, deepest[0]);
+    }
+}